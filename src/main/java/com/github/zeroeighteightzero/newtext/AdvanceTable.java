@@ -0,0 +1,94 @@
+package com.github.zeroeighteightzero.newtext;
+
+/**
+ * Glyph advances of one scaled font, for measuring text without loading glyphs. Measuring always ignores kerning and
+ * ligatures, so it only approximates shaping; shape when exact widths matter. Not thread-safe.
+ */
+public class AdvanceTable {
+    private static final int PAGE_SIZE = 256;
+
+    private final Harfbuzz.Font font;
+    private final int glyphCount;
+    private final int[] advances;
+    private final int[][] extentPages;
+    private final int[][] glyphPages = new int[0x110000 / PAGE_SIZE][];
+
+    /** {@code font} must outlive the table and keep its scale. */
+    public AdvanceTable(Harfbuzz.Font font) {
+        this.font = font;
+        this.glyphCount = font.getGlyphCount();
+        this.advances = new int[glyphCount];
+        font.getGlyphHAdvances(0, glyphCount, advances);
+        this.extentPages = new int[(glyphCount + PAGE_SIZE - 1) / PAGE_SIZE][];
+    }
+
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    public int getAdvance(int glyph) {
+        return glyph >= 0 && glyph < glyphCount ? advances[glyph] : 0;
+    }
+
+    public int getGlyph(int codepoint) {
+        if (codepoint < 0 || codepoint >= 0x110000) return 0;
+        int[] page = glyphPages[codepoint / PAGE_SIZE];
+        if (page == null) {
+            page = new int[PAGE_SIZE];
+            font.getNominalGlyphs(codepoint & -PAGE_SIZE, PAGE_SIZE, page);
+            glyphPages[codepoint / PAGE_SIZE] = page;
+        }
+        return page[codepoint % PAGE_SIZE];
+    }
+
+    /** Copies x bearing, y bearing, width and height. Returns false for glyphs outside the font. */
+    public boolean getExtents(int glyph, int[] out, int offset) {
+        if (glyph < 0 || glyph >= glyphCount) return false;
+        int[] page = extentPages[glyph / PAGE_SIZE];
+        if (page == null) {
+            int first = glyph & -PAGE_SIZE;
+            page = new int[PAGE_SIZE * 4];
+            font.getGlyphExtents(first, Math.min(PAGE_SIZE, glyphCount - first), page);
+            extentPages[glyph / PAGE_SIZE] = page;
+        }
+        System.arraycopy(page, (glyph % PAGE_SIZE) * 4, out, offset, 4);
+        return true;
+    }
+
+    public int measure(CharSequence text) {
+        return measure(text, 0, text.length());
+    }
+
+    public int measure(CharSequence text, int start, int end) {
+        int width = 0;
+        for (int i = start; i < end; i++) {
+            int codepoint = text.charAt(i);
+            if (Character.isHighSurrogate((char) codepoint) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                codepoint = Character.toCodePoint((char) codepoint, text.charAt(++i));
+            }
+            width += getAdvance(getGlyph(codepoint));
+        }
+        return width;
+    }
+
+    /**
+     * Whether {@code text} only has Latin, Greek and Cyrillic letters and punctuation without combining marks, which map
+     * one to one onto nominal glyphs. Kerning and ligatures can still change the width.
+     */
+    public static boolean isSimple(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x0300) continue;
+            if (c >= 0x0370 && c < 0x0483) continue; // Greek and Coptic, Cyrillic before its combining marks.
+            if (c >= 0x048A && c < 0x0530) continue; // Rest of Cyrillic and Cyrillic Supplement.
+            if (c >= 0x2000 && c < 0x200B) continue; // Spaces.
+            if (c >= 0x2010 && c < 0x2028 || c >= 0x2030 && c < 0x205F) continue; // Punctuation, without format controls.
+            return false;
+        }
+        return true;
+    }
+
+    public Harfbuzz.Font getFont() {
+        return font;
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Per-thread pool of {@link Harfbuzz.Buffer}s. Buffers must be freed on the thread that obtained them.
+ */
+public class BufferPool implements Disposable {
+    private final int maxPerThread;
+    private final int preAllocate;
+    private final Array<Pool<Harfbuzz.Buffer>> pools = new Array<Pool<Harfbuzz.Buffer>>();
+    private final ThreadLocal<Pool<Harfbuzz.Buffer>> local = new ThreadLocal<Pool<Harfbuzz.Buffer>>() {
+        @Override
+        protected Pool<Harfbuzz.Buffer> initialValue() {
+            Pool<Harfbuzz.Buffer> pool = new Pool<Harfbuzz.Buffer>(4, maxPerThread) {
+                @Override
+                protected Harfbuzz.Buffer newObject() {
+                    return Harfbuzz.createBuffer(preAllocate);
+                }
+
+                @Override
+                protected void discard(Harfbuzz.Buffer buffer) {
+                    buffer.dispose();
+                }
+            };
+            synchronized (pools) {
+                pools.add(pool);
+            }
+            return pool;
+        }
+    };
+
+    public BufferPool() {
+        this(16, 256);
+    }
+
+    public BufferPool(int maxPerThread, int preAllocate) {
+        this.maxPerThread = maxPerThread;
+        this.preAllocate = preAllocate;
+    }
+
+    public Harfbuzz.Buffer obtain() {
+        return local.get().obtain();
+    }
+
+    public void free(Harfbuzz.Buffer buffer) {
+        local.get().free(buffer);
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (pools) {
+            for (Pool<Harfbuzz.Buffer> pool : pools) {
+                pool.clear();
+            }
+        }
+    }
+}
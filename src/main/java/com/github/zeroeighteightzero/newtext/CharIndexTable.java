@@ -0,0 +1,60 @@
+package com.github.zeroeighteightzero.newtext;
+
+/**
+ * Paged character to glyph index map of a face, see {@link FreeType.Face#getCharIndexTable()}.
+ */
+public class CharIndexTable {
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    private final int[][] pages = new int[0x110000 >> PAGE_SHIFT][];
+    private final int size;
+
+    public CharIndexTable(FreeType.Face face) {
+        int[] chars = new int[1024], glyphs = new int[1024];
+        int count = face.getCharMap(chars, glyphs);
+        if (count > chars.length) {
+            chars = new int[count];
+            glyphs = new int[count];
+            count = face.getCharMap(chars, glyphs);
+        }
+        this.size = fill(chars, glyphs, count);
+    }
+
+    CharIndexTable(int[] chars, int[] glyphs, int count) {
+        this.size = fill(chars, glyphs, count);
+    }
+
+    private int fill(int[] chars, int[] glyphs, int count) {
+        int mapped = 0;
+        for (int i = 0; i < count; i++) {
+            int c = chars[i];
+            if (c < 0 || c >= 0x110000) continue;
+            int[] page = pages[c >> PAGE_SHIFT];
+            if (page == null) page = pages[c >> PAGE_SHIFT] = new int[PAGE_SIZE];
+            page[c & (PAGE_SIZE - 1)] = glyphs[i];
+            mapped++;
+        }
+        return mapped;
+    }
+
+    public int get(int codepoint) {
+        if (codepoint < 0 || codepoint >= 0x110000) return 0;
+        int[] page = pages[codepoint >> PAGE_SHIFT];
+        return page == null ? 0 : page[codepoint & (PAGE_SIZE - 1)];
+    }
+
+    public boolean contains(int codepoint) {
+        return get(codepoint) != 0;
+    }
+
+    public void get(int[] codepoints, int offset, int count, int[] glyphsOut, int glyphsOffset) {
+        for (int i = 0; i < count; i++) {
+            glyphsOut[glyphsOffset + i] = get(codepoints[offset + i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.zeroeighteightzero.newtext;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Paged bit set of the code points a face has glyphs for. Immutable; save it with {@link #toBytes()}.
+ */
+public class Coverage {
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_WORDS = PAGE_SIZE / 64;
+    private static final int PAGE_COUNT = 0x110000 >> PAGE_SHIFT;
+    private static final long[] FULL_PAGE = {-1L, -1L, -1L, -1L};
+    private static final int MAGIC = 0x48424356; // "HBCV"
+    private static final int VERSION = 1;
+
+    private final long[][] pages = new long[PAGE_COUNT][];
+    private final int size;
+
+    public Coverage(Harfbuzz.Face face) {
+        this(collect(face));
+    }
+
+    /** {@code bits} holds one bit per code point, see {@link Harfbuzz.Face#collectUnicodes(long[])}. */
+    public Coverage(long[] bits) {
+        if (bits.length < PAGE_COUNT * PAGE_WORDS) throw new IllegalArgumentException("bits must hold 0x110000 bits.");
+        int size = 0;
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            int base = p * PAGE_WORDS;
+            int count = 0;
+            for (int w = 0; w < PAGE_WORDS; w++) {
+                count += Long.bitCount(bits[base + w]);
+            }
+            if (count == 0) continue;
+            if (count == PAGE_SIZE) {
+                pages[p] = FULL_PAGE;
+            } else {
+                long[] page = new long[PAGE_WORDS];
+                System.arraycopy(bits, base, page, 0, PAGE_WORDS);
+                pages[p] = page;
+            }
+            size += count;
+        }
+        this.size = size;
+    }
+
+    private Coverage(long[][] pages, int size) {
+        System.arraycopy(pages, 0, this.pages, 0, PAGE_COUNT);
+        this.size = size;
+    }
+
+    private static long[] collect(Harfbuzz.Face face) {
+        long[] bits = new long[0x110000 / 64];
+        face.collectUnicodes(bits);
+        return bits;
+    }
+
+    public boolean contains(int codepoint) {
+        if (codepoint < 0 || codepoint >= 0x110000) return false;
+        long[] page = pages[codepoint >> PAGE_SHIFT];
+        return page != null && (page[(codepoint >> 6) & (PAGE_WORDS - 1)] & 1L << codepoint) != 0;
+    }
+
+    public boolean containsAll(CharSequence text, int start, int end) {
+        for (int i = start; i < end; ) {
+            int codepoint = Character.codePointAt(text, i);
+            if (!contains(codepoint)) return false;
+            i += Character.charCount(codepoint);
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toBytes() {
+        int pageCount = 0;
+        for (long[] page : pages) {
+            if (page != null) pageCount++;
+        }
+        ByteBuffer out = ByteBuffer.allocate(16 + pageCount * (4 + PAGE_WORDS * 8));
+        out.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(pageCount);
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            long[] page = pages[p];
+            if (page == null) continue;
+            out.putInt(p);
+            for (int w = 0; w < PAGE_WORDS; w++) {
+                out.putLong(page[w]);
+            }
+        }
+        return out.array();
+    }
+
+    public static Coverage fromBytes(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (bytes.length < 16 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IllegalArgumentException("Not a serialized coverage.");
+        }
+        int size = in.getInt();
+        int pageCount = in.getInt();
+        if (pageCount < 0 || pageCount > PAGE_COUNT || in.remaining() != pageCount * (4 + PAGE_WORDS * 8)) {
+            throw new IllegalArgumentException("Truncated coverage: " + pageCount + " pages in " + bytes.length + " bytes.");
+        }
+        long[][] pages = new long[PAGE_COUNT][];
+        for (int i = 0; i < pageCount; i++) {
+            int p = in.getInt();
+            if (p < 0 || p >= PAGE_COUNT) throw new IllegalArgumentException("Invalid coverage page: " + p);
+            long[] page = new long[PAGE_WORDS];
+            boolean full = true;
+            for (int w = 0; w < PAGE_WORDS; w++) {
+                page[w] = in.getLong();
+                full &= page[w] == -1L;
+            }
+            pages[p] = full ? FULL_PAGE : page;
+        }
+        return new Coverage(pages, size);
+    }
+}
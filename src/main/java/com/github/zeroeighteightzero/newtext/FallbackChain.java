@@ -0,0 +1,59 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Picks the first font whose {@link Coverage} has a code point. Marks, joiners and covered spaces and punctuation stay
+ * with the font before them.
+ */
+public class FallbackChain implements Itemizer.FontSelector {
+    private final Array<Coverage> coverages = new Array<>();
+
+    public FallbackChain(Coverage... coverages) {
+        this.coverages.addAll(coverages);
+    }
+
+    public int add(Coverage coverage) {
+        coverages.add(coverage);
+        return coverages.size - 1;
+    }
+
+    public int add(Harfbuzz.Face face) {
+        return add(new Coverage(face));
+    }
+
+    public Coverage getCoverage(int font) {
+        return coverages.get(font);
+    }
+
+    public int size() {
+        return coverages.size;
+    }
+
+    public int find(int codepoint) {
+        for (int i = 0, n = coverages.size; i < n; i++) {
+            if (coverages.get(i).contains(codepoint)) return i;
+        }
+        return -1;
+    }
+
+    /** Characters no font covers go to the previous font, or -1 at the start of the text. */
+    @Override
+    public int select(int codepoint, int previousFont) {
+        if (previousFont >= 0 && previousFont < coverages.size) {
+            if (isClusterContinuation(codepoint)) return previousFont;
+            if (!Character.isLetterOrDigit(codepoint) && coverages.get(previousFont).contains(codepoint)) return previousFont;
+        }
+        int font = find(codepoint);
+        if (font >= 0) return font;
+        return previousFont;
+    }
+
+    private static boolean isClusterContinuation(int codepoint) {
+        if (codepoint == 0x200C || codepoint == 0x200D) return true; // Zero width non-joiner and joiner.
+        if (codepoint >= 0xFE00 && codepoint <= 0xFE0F || codepoint >= 0xE0100 && codepoint <= 0xE01EF) return true;
+        if (codepoint >= 0x1F3FB && codepoint <= 0x1F3FF) return true; // Emoji skin tone modifiers.
+        int type = Character.getType(codepoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
+}
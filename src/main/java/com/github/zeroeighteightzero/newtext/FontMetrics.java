@@ -0,0 +1,51 @@
+package com.github.zeroeighteightzero.newtext;
+
+import static com.github.zeroeighteightzero.newtext.FreeType.*;
+
+/**
+ * Face metrics in font units and size metrics in 26.6 pixels, see {@link FreeType.Face#getFontMetrics()}.
+ */
+public class FontMetrics {
+    public final int unitsPerEM;
+    public final int faceAscender, faceDescender, faceHeight;
+    public final int maxAdvanceWidth, maxAdvanceHeight;
+    public final int underlinePosition, underlineThickness;
+    public final int numGlyphs;
+    public final int faceFlags, styleFlags;
+
+    /** Nominal size in whole pixels. */
+    public final int xppem, yppem;
+    /** Font units to 26.6 pixels, in 16.16. */
+    public final int xScale, yScale;
+    public final int ascender, descender, height, maxAdvance;
+
+    public FontMetrics(int[] face, int[] size) {
+        unitsPerEM = face[FACE_METRICS_UNITS_PER_EM];
+        faceAscender = face[FACE_METRICS_ASCENDER];
+        faceDescender = face[FACE_METRICS_DESCENDER];
+        faceHeight = face[FACE_METRICS_HEIGHT];
+        maxAdvanceWidth = face[FACE_METRICS_MAX_ADVANCE_WIDTH];
+        maxAdvanceHeight = face[FACE_METRICS_MAX_ADVANCE_HEIGHT];
+        underlinePosition = face[FACE_METRICS_UNDERLINE_POSITION];
+        underlineThickness = face[FACE_METRICS_UNDERLINE_THICKNESS];
+        numGlyphs = face[FACE_METRICS_NUM_GLYPHS];
+        faceFlags = face[FACE_METRICS_FACE_FLAGS];
+        styleFlags = face[FACE_METRICS_STYLE_FLAGS];
+        xppem = size[SIZE_METRICS_XPPEM];
+        yppem = size[SIZE_METRICS_YPPEM];
+        xScale = size[SIZE_METRICS_X_SCALE];
+        yScale = size[SIZE_METRICS_Y_SCALE];
+        ascender = size[SIZE_METRICS_ASCENDER];
+        descender = size[SIZE_METRICS_DESCENDER];
+        height = size[SIZE_METRICS_HEIGHT];
+        maxAdvance = size[SIZE_METRICS_MAX_ADVANCE];
+    }
+
+    public int scaleY(int fontUnits) {
+        return (int) (((long) fontUnits * yScale + 0x8000) >> 16);
+    }
+
+    public int scaleX(int fontUnits) {
+        return (int) (((long) fontUnits * xScale + 0x8000) >> 16);
+    }
+}
@@ -0,0 +1,251 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reference-counted font files, faces and sizes, each loaded once. Thread-safe, but lock on {@link SharedFace#getFace()}
+ * around {@link SizedFont#activate()} and the glyph loading after it. The registry never takes a face lock while holding
+ * its own.
+ */
+public class FontRegistry implements Disposable {
+    private final FreeType.Library library;
+    private final ObjectMap<String, FontFile> files = new ObjectMap<String, FontFile>();
+
+    public FontRegistry(FreeType.Library library) {
+        this.library = library;
+    }
+
+    public synchronized SharedFace acquire(FileHandle file, int faceIndex) {
+        // Classpath and local files can share a path.
+        String key = file.type() + ":" + file.path();
+        FontFile fontFile = files.get(key);
+        if (fontFile == null) {
+            fontFile = new FontFile(key, FreeType.readFontData(file));
+            files.put(key, fontFile);
+        }
+        SharedFace face = fontFile.faces.get(faceIndex);
+        if (face == null) {
+            try {
+                face = new SharedFace(fontFile, faceIndex);
+            } catch (RuntimeException e) {
+                if (fontFile.faces.size == 0) {
+                    files.remove(key);
+                    fontFile.free();
+                }
+                throw e;
+            }
+            fontFile.faces.put(faceIndex, face);
+        }
+        face.references++;
+        return face;
+    }
+
+    @Override
+    public void dispose() {
+        Array<FontFile> freed = new Array<FontFile>();
+        synchronized (this) {
+            for (FontFile file : files.values()) {
+                freed.add(file);
+            }
+            files.clear();
+        }
+        for (FontFile file : freed) {
+            for (SharedFace face : file.faces.values()) {
+                face.free();
+            }
+            file.faces.clear();
+            file.free();
+        }
+    }
+
+    private void release(SharedFace face) {
+        FontFile freedFile = null;
+        synchronized (this) {
+            if (face.references <= 0) throw new GdxRuntimeException("Face already released");
+            if (--face.references > 0) return;
+            FontFile file = face.file;
+            file.faces.remove(face.faceIndex);
+            if (file.faces.size == 0) {
+                files.remove(file.key);
+                freedFile = file;
+            }
+        }
+        // Freeing takes the face lock, so it happens outside the registry lock.
+        face.free();
+        if (freedFile != null) freedFile.free();
+    }
+
+    private void release(SizedFont size) {
+        synchronized (this) {
+            if (size.references <= 0) throw new GdxRuntimeException("Size already released");
+            if (--size.references > 0) return;
+            size.face.sizes.remove(size.pixelSize);
+        }
+        size.free();
+        release(size.face);
+    }
+
+    private static class FontFile {
+        final String key;
+        final ByteBuffer data;
+        final IntMap<SharedFace> faces = new IntMap<SharedFace>();
+
+        FontFile(String key, ByteBuffer data) {
+            this.key = key;
+            this.data = data;
+        }
+
+        void free() {
+            if (BufferUtils.isUnsafeByteBuffer(data))
+                BufferUtils.disposeUnsafeByteBuffer(data);
+        }
+    }
+
+    /** The font of {@link #getFont()} is scaled to font units. */
+    public class SharedFace implements Disposable {
+        private final FontFile file;
+        private final int faceIndex;
+        private final FreeType.Face face;
+        private final Harfbuzz.Blob blob;
+        private final Harfbuzz.Face hbFace;
+        private final Harfbuzz.Font font;
+        private final IntMap<SizedFont> sizes = new IntMap<SizedFont>();
+        private int references;
+
+        private SharedFace(FontFile file, int faceIndex) {
+            this.file = file;
+            this.faceIndex = faceIndex;
+            this.face = library.newMemoryFace(file.data, faceIndex, false);
+            this.blob = Harfbuzz.createBlob(file.data);
+            this.hbFace = blob.createFace(faceIndex);
+            this.font = hbFace.createFont();
+            int upem = hbFace.getUpem();
+            font.setScale(upem, upem);
+        }
+
+        public FreeType.Face getFace() {
+            return face;
+        }
+
+        public Harfbuzz.Face getHarfbuzzFace() {
+            return hbFace;
+        }
+
+        public Harfbuzz.Font getFont() {
+            return font;
+        }
+
+        public SizedFont acquireSize(int pixelSize) {
+            synchronized (FontRegistry.this) {
+                if (references <= 0) throw new GdxRuntimeException("Face already released");
+                SizedFont size = sizes.get(pixelSize);
+                if (size != null) {
+                    size.references++;
+                    return size;
+                }
+                // Held by the new size, or given back if creating it fails.
+                references++;
+            }
+            // Creating the size takes the face lock, so it happens outside the registry lock.
+            SizedFont created;
+            try {
+                created = new SizedFont(this, pixelSize);
+            } catch (RuntimeException e) {
+                release(this);
+                throw e;
+            }
+            SizedFont size;
+            synchronized (FontRegistry.this) {
+                size = sizes.get(pixelSize);
+                if (size == null) {
+                    sizes.put(pixelSize, created);
+                    created.references++;
+                    return created;
+                }
+                // Another thread created the same size first.
+                size.references++;
+            }
+            created.free();
+            release(this);
+            return size;
+        }
+
+        @Override
+        public void dispose() {
+            release(this);
+        }
+
+        private void free() {
+            synchronized (face) {
+                for (SizedFont size : sizes.values()) {
+                    size.free();
+                }
+                sizes.clear();
+                face.dispose();
+            }
+            font.dispose();
+            hbFace.dispose();
+            blob.dispose();
+        }
+    }
+
+    /** One pixel size of a {@link SharedFace}, scaled to 26.6 pixels. */
+    public class SizedFont implements Disposable {
+        private final SharedFace face;
+        private final int pixelSize;
+        private final FreeType.Size size;
+        private final Harfbuzz.Font font;
+        private int references;
+
+        private SizedFont(SharedFace face, int pixelSize) {
+            this.face = face;
+            this.pixelSize = pixelSize;
+            synchronized (face.face) {
+                this.size = face.face.newSize();
+                if (!size.activate() || !face.face.setPixelSizes(0, pixelSize)) {
+                    face.face.doneSize(size);
+                    throw new GdxRuntimeException("Couldn't set pixel size " + pixelSize);
+                }
+            }
+            this.font = face.font.createSubFont();
+            font.setScale(pixelSize << 6, pixelSize << 6);
+        }
+
+        public SharedFace getSharedFace() {
+            return face;
+        }
+
+        public int getPixelSize() {
+            return pixelSize;
+        }
+
+        public Harfbuzz.Font getFont() {
+            return font;
+        }
+
+        public FreeType.Face activate() {
+            if (!size.activate()) throw new GdxRuntimeException("Couldn't activate size, FreeType error code: " + FreeType.getLastErrorCode());
+            return face.face;
+        }
+
+        @Override
+        public void dispose() {
+            release(this);
+        }
+
+        private void free() {
+            font.dispose();
+            synchronized (face.face) {
+                face.face.doneSize(size);
+            }
+        }
+    }
+}
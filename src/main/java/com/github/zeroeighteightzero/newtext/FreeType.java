@@ -3,14 +3,15 @@ package com.github.zeroeighteightzero.newtext;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Pixmap.Blending;
 import com.badlogic.gdx.graphics.Pixmap.Format;
 import com.badlogic.gdx.utils.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 
 /*
 * From libgdx
@@ -22,18 +23,248 @@ public class FreeType {
 	#include <ft2build.h>
 	#include FT_FREETYPE_H
 	#include FT_STROKER_H
-
-	static jint lastError = 0;
+	#include FT_SIZES_H
+	#include FT_MODULE_H
+	#include FT_OUTLINE_H
+	#include <stdlib.h>
+	#include <string.h>
+	#include <math.h>
+
+	static thread_local jint lastError = 0;
+
+	#define RENDER_STRIDE 10
+
+	// Snapshot layouts, see SIZE_METRICS_* and GLYPH_METRICS_* in FreeType.
+	static void fillSizeMetrics(FT_Size_Metrics* m, int* out) {
+		out[0] = m->x_ppem;
+		out[1] = m->y_ppem;
+		out[2] = (int)m->x_scale;
+		out[3] = (int)m->y_scale;
+		out[4] = (int)m->ascender;
+		out[5] = (int)m->descender;
+		out[6] = (int)m->height;
+		out[7] = (int)m->max_advance;
+	}
+
+	static void fillGlyphMetrics(FT_Glyph_Metrics* m, int* out) {
+		out[0] = (int)m->width;
+		out[1] = (int)m->height;
+		out[2] = (int)m->horiBearingX;
+		out[3] = (int)m->horiBearingY;
+		out[4] = (int)m->horiAdvance;
+		out[5] = (int)m->vertBearingX;
+		out[6] = (int)m->vertBearingY;
+		out[7] = (int)m->vertAdvance;
+	}
+
+	static void fillGlyphSlotMetrics(FT_GlyphSlot slot, int* out) {
+		fillGlyphMetrics(&slot->metrics, out);
+		out[8] = (int)slot->linearHoriAdvance;
+		out[9] = (int)slot->linearVertAdvance;
+		out[10] = (int)slot->advance.x;
+		out[11] = (int)slot->advance.y;
+		out[12] = slot->bitmap_left;
+		out[13] = slot->bitmap_top;
+		out[14] = slot->format;
+	}
+
+	// Collects FT_Outline_Decompose callbacks into flat arrays, counting past the end so the caller can grow them.
+	typedef struct {
+		float* coords;
+		int coordCapacity;
+		int coordCount;
+		char* commands;
+		int commandCapacity;
+		int commandCount;
+	} OutlineSink;
+
+	static void outlineCommand(OutlineSink* sink, int command, const FT_Vector* a, const FT_Vector* b, const FT_Vector* c) {
+		if(sink->commandCount < sink->commandCapacity) sink->commands[sink->commandCount] = (char)command;
+		sink->commandCount++;
+		const FT_Vector* points[3] = {a, b, c};
+		for(int i = 0; i < 3 && points[i]; i++) {
+			if(sink->coordCount + 2 <= sink->coordCapacity) {
+				sink->coords[sink->coordCount] = (float)points[i]->x;
+				sink->coords[sink->coordCount + 1] = (float)points[i]->y;
+			}
+			sink->coordCount += 2;
+		}
+	}
+
+	static int outlineMoveTo(const FT_Vector* to, void* user) {
+		outlineCommand((OutlineSink*)user, 0, to, NULL, NULL);
+		return 0;
+	}
+
+	static int outlineLineTo(const FT_Vector* to, void* user) {
+		outlineCommand((OutlineSink*)user, 1, to, NULL, NULL);
+		return 0;
+	}
+
+	static int outlineConicTo(const FT_Vector* control, const FT_Vector* to, void* user) {
+		outlineCommand((OutlineSink*)user, 2, control, to, NULL);
+		return 0;
+	}
+
+	static int outlineCubicTo(const FT_Vector* control1, const FT_Vector* control2, const FT_Vector* to, void* user) {
+		outlineCommand((OutlineSink*)user, 3, control1, control2, to);
+		return 0;
+	}
+
+	// Output levels and alpha for every coverage value, cached for the last color alpha and gamma used on this thread.
+	static thread_local unsigned char blitLevels[256];
+	static thread_local unsigned char blitAlphas[256];
+	static thread_local int blitAlpha = -1;
+	static thread_local float blitGamma = 0;
+
+	static void blitTables(int alpha, float gamma) {
+		if (alpha == blitAlpha && gamma == blitGamma) return;
+		// Zero raised to any power is always zero.
+		// 255 (=one) raised to any power is always one.
+		blitLevels[0] = 0;
+		blitAlphas[0] = 0;
+		for (int i = 1; i < 255; i++) {
+			float level = powf(i / 255.0f, gamma); // Inverse gamma.
+			blitLevels[i] = (unsigned char)(255 * level);
+			blitAlphas[i] = (unsigned char)(alpha * level);
+		}
+		blitLevels[255] = 255;
+		blitAlphas[255] = (unsigned char)alpha;
+		blitAlpha = alpha;
+		blitGamma = gamma;
+	}
+
+	// Coverage of pixel x in a top-down source row, for every pixel mode but LCD and LCD_V.
+	static inline int blitCoverage(const unsigned char* row, int x, int pixelMode) {
+		switch (pixelMode) {
+		case FT_PIXEL_MODE_MONO: return (row[x >> 3] & (0x80 >> (x & 7))) ? 255 : 0;
+		case FT_PIXEL_MODE_GRAY2: return ((row[x >> 2] >> (6 - ((x & 3) << 1))) & 3) * 85;
+		case FT_PIXEL_MODE_GRAY4: return ((row[x >> 1] >> (4 - ((x & 1) << 2))) & 15) * 17;
+		default: return row[x];
+		}
+	}
+
+	// Writes the bitmap into dst at x, y, converting to a gdx2d pixel format. See Bitmap.blitInto.
+	static bool blitBitmap(FT_Bitmap* bmp, unsigned char* dst, int stride, int dstX, int dstY, int format, unsigned int rgba, float gamma) {
+		int pixelMode = bmp->pixel_mode;
+		int width = bmp->width, rows = bmp->rows;
+		if (pixelMode == FT_PIXEL_MODE_LCD) width /= 3;
+		else if (pixelMode == FT_PIXEL_MODE_LCD_V) rows /= 3;
+		else if (pixelMode < FT_PIXEL_MODE_MONO || pixelMode > FT_PIXEL_MODE_GRAY4) return false;
+		int bpp;
+		switch (format) {
+		case 1: bpp = 1; break; // Alpha
+		case 2: bpp = 2; break; // LuminanceAlpha
+		case 3: bpp = 3; break; // RGB888
+		case 4: bpp = 4; break; // RGBA8888
+		case 5: case 6: bpp = 2; break; // RGB565, RGBA4444
+		default: return false;
+		}
+		int pitch = bmp->pitch;
+		int rowBytes = abs(pitch);
+		int red = rgba >> 24, green = (rgba >> 16) & 0xff, blue = (rgba >> 8) & 0xff;
+		blitTables(rgba & 0xff, gamma);
+		int sourceRows = bmp->rows;
+		for (int y = 0; y < rows; y++) {
+			unsigned char* out = dst + (dstY + y) * stride + dstX * bpp;
+			for (int x = 0; x < width; x++) {
+				int r, g, b, a;
+				if (pixelMode == FT_PIXEL_MODE_LCD || pixelMode == FT_PIXEL_MODE_LCD_V) {
+					// Subpixel coverage tints each channel, alpha comes from the average coverage.
+					int c[3];
+					for (int i = 0; i < 3; i++) {
+						int sourceY = pixelMode == FT_PIXEL_MODE_LCD_V ? y * 3 + i : y;
+						int sourceX = pixelMode == FT_PIXEL_MODE_LCD ? x * 3 + i : x;
+						// Rows are stored bottom-up when the pitch is negative.
+						const unsigned char* row = bmp->buffer + (pitch < 0 ? sourceRows - 1 - sourceY : sourceY) * rowBytes;
+						c[i] = row[sourceX];
+					}
+					r = red * blitLevels[c[0]] / 255;
+					g = green * blitLevels[c[1]] / 255;
+					b = blue * blitLevels[c[2]] / 255;
+					a = blitAlphas[(c[0] + c[1] + c[2]) / 3];
+				} else {
+					const unsigned char* row = bmp->buffer + (pitch < 0 ? sourceRows - 1 - y : y) * rowBytes;
+					r = red;
+					g = green;
+					b = blue;
+					a = blitAlphas[blitCoverage(row, x, pixelMode)];
+				}
+				unsigned short packed;
+				switch (format) {
+				case 1:
+					out[0] = (unsigned char)a;
+					break;
+				case 2:
+					out[0] = (unsigned char)(0.2126f * r + 0.7152f * g + 0.0722f * b);
+					out[1] = (unsigned char)a;
+					break;
+				case 3:
+					out[0] = (unsigned char)r;
+					out[1] = (unsigned char)g;
+					out[2] = (unsigned char)b;
+					break;
+				case 4:
+					out[0] = (unsigned char)r;
+					out[1] = (unsigned char)g;
+					out[2] = (unsigned char)b;
+					out[3] = (unsigned char)a;
+					break;
+				case 5:
+					packed = (unsigned short)(((r >> 3) << 11) | ((g >> 2) << 5) | (b >> 3));
+					memcpy(out, &packed, 2);
+					break;
+				default:
+					packed = (unsigned short)(((r >> 4) << 12) | ((g >> 4) << 8) | ((b >> 4) << 4) | (a >> 4));
+					memcpy(out, &packed, 2);
+					break;
+				}
+				out += bpp;
+			}
+		}
+		return true;
+	}
 	 */
 
     /**
      *
-     * @return returns the last error code FreeType reported
+     * @return returns the last error code FreeType reported on the calling thread
      */
     static native int getLastErrorCode(); /*
 		return lastError;
 	*/
 
+    /** Reads into an unsafe direct buffer where files can't be mapped. */
+    static ByteBuffer readFontData(FileHandle fontFile) {
+        ByteBuffer buffer = null;
+        try {
+            buffer = fontFile.map();
+        } catch (GdxRuntimeException ignored) {
+            // OK to ignore, some platforms do not support file mapping.
+        }
+        if (buffer == null) {
+            InputStream input = fontFile.read();
+            try {
+                int fileSize = (int)fontFile.length();
+                if (fileSize == 0) {
+                    // Copy to a byte[] to get the size, then copy to the buffer.
+                    byte[] data = StreamUtils.copyStreamToByteArray(input, 1024 * 16);
+                    buffer = BufferUtils.newUnsafeByteBuffer(data.length);
+                    BufferUtils.copy(data, 0, buffer, data.length);
+                } else {
+                    // Trust the specified file size.
+                    buffer = BufferUtils.newUnsafeByteBuffer(fileSize);
+                    StreamUtils.copyStream(input, buffer);
+                }
+            } catch (IOException ex) {
+                throw new GdxRuntimeException(ex);
+            } finally {
+                StreamUtils.closeQuietly(input);
+            }
+        }
+        return buffer;
+    }
+
     private static class Pointer {
         public long address;
 
@@ -43,7 +274,8 @@ public class FreeType {
     }
 
     public static class Library extends Pointer implements Disposable {
-        LongMap<ByteBuffer> fontData = new LongMap<ByteBuffer>();
+        /** Faces that own their font data. */
+        LongMap<Face> faces = new LongMap<Face>();
 
         Library (long address) {
             super(address);
@@ -52,10 +284,17 @@ public class FreeType {
         @Override
         public void dispose () {
             doneFreeType(address);
-            for(ByteBuffer buffer: fontData.values()) {
-                if (BufferUtils.isUnsafeByteBuffer(buffer))
-                    BufferUtils.disposeUnsafeByteBuffer(buffer);
+            freeFaces();
+        }
+
+        /** FreeType has freed the faces; free their data unless a blob still reads it. */
+        void freeFaces() {
+            for(Face face: faces.values()) {
+                face.disposed = true;
+                if (face.dataReferences == 0)
+                    face.freeData();
             }
+            faces.clear();
         }
 
         private static native void doneFreeType(long library); /*
@@ -63,33 +302,7 @@ public class FreeType {
 		*/
 
         public Face newFace(FileHandle fontFile, int faceIndex) {
-            ByteBuffer buffer = null;
-            try {
-                buffer = fontFile.map();
-            } catch (GdxRuntimeException ignored) {
-                // OK to ignore, some platforms do not support file mapping.
-            }
-            if (buffer == null) {
-                InputStream input = fontFile.read();
-                try {
-                    int fileSize = (int)fontFile.length();
-                    if (fileSize == 0) {
-                        // Copy to a byte[] to get the size, then copy to the buffer.
-                        byte[] data = StreamUtils.copyStreamToByteArray(input, 1024 * 16);
-                        buffer = BufferUtils.newUnsafeByteBuffer(data.length);
-                        BufferUtils.copy(data, 0, buffer, data.length);
-                    } else {
-                        // Trust the specified file size.
-                        buffer = BufferUtils.newUnsafeByteBuffer(fileSize);
-                        StreamUtils.copyStream(input, buffer);
-                    }
-                } catch (IOException ex) {
-                    throw new GdxRuntimeException(ex);
-                } finally {
-                    StreamUtils.closeQuietly(input);
-                }
-            }
-            return newMemoryFace(buffer, faceIndex);
+            return newMemoryFace(readFontData(fontFile), faceIndex);
         }
 
         public Face newMemoryFace(byte[] data, int dataSize, int faceIndex) {
@@ -99,15 +312,22 @@ public class FreeType {
         }
 
         public Face newMemoryFace(ByteBuffer buffer, int faceIndex) {
+            return newMemoryFace(buffer, faceIndex, true);
+        }
+
+        /** Pass false for {@code ownsData} to load several faces from the same buffer. */
+        public Face newMemoryFace(ByteBuffer buffer, int faceIndex, boolean ownsData) {
             long face = newMemoryFace(address, buffer, buffer.remaining(), faceIndex);
             if(face == 0) {
-                if (BufferUtils.isUnsafeByteBuffer(buffer))
+                if (ownsData && BufferUtils.isUnsafeByteBuffer(buffer))
                     BufferUtils.disposeUnsafeByteBuffer(buffer);
                 throw new GdxRuntimeException("Couldn't load font, FreeType error code: " + getLastErrorCode());
             }
             else {
-                fontData.put(face, buffer);
-                return new Face(face, this);
+                Face result = new Face(face, this, buffer, ownsData);
+                if (ownsData)
+                    faces.put(face, result);
+                return result;
             }
         }
 
@@ -121,6 +341,22 @@ public class FreeType {
 			else return (jlong)face;
 		*/
 
+        /** Sets the spread of both SDF renderers, 2 to 32 pixels (default 8). */
+        public boolean setSdfSpread(int spread) {
+            return setSdfSpread(address, spread);
+        }
+
+        private static native boolean setSdfSpread(long library, int spread); /*
+			FT_Int value = spread;
+			FT_Error error = FT_Property_Set((FT_Library)library, "sdf", "spread", &value);
+			if(!error) error = FT_Property_Set((FT_Library)library, "bsdf", "spread", &value);
+			if(error) {
+				lastError = error;
+				return false;
+			}
+			return true;
+		*/
+
         public Stroker createStroker() {
             long stroker = strokerNew(address);
             if(stroker == 0) throw new GdxRuntimeException("Couldn't create FreeType stroker, FreeType error code: " + getLastErrorCode());
@@ -140,23 +376,64 @@ public class FreeType {
 
     public static class Face extends Pointer implements Disposable {
         Library library;
+        /** Font file bytes, or null if unknown. */
+        private ByteBuffer data;
+        private boolean ownsData;
+        private int dataReferences;
+        private boolean disposed;
+        /** Address of the active FT_Size, or 0 if unknown. */
+        private long activeSize;
+        private final LongMap<FontMetrics> fontMetrics = new LongMap<FontMetrics>(4);
+        private CharIndexTable charIndexTable;
 
         public Face (long address, Library library) {
             super(address);
             this.library = library;
         }
 
+        Face (long address, Library library, ByteBuffer data, boolean ownsData) {
+            super(address);
+            this.library = library;
+            this.data = data;
+            this.ownsData = ownsData;
+        }
+
         @Override
         public void dispose() {
+            if (disposed) return;
             doneFace(address);
-            ByteBuffer buffer = library.fontData.get(address);
-            if(buffer != null) {
-                library.fontData.remove(address);
-                if (BufferUtils.isUnsafeByteBuffer(buffer))
-                    BufferUtils.disposeUnsafeByteBuffer(buffer);
-            }
+            disposed = true;
+            library.faces.remove(address);
+            if (ownsData && dataReferences == 0)
+                freeData();
+        }
+
+        /** Keeps the font file bytes alive until {@link #releaseData()} is called as often. */
+        ByteBuffer retainData() {
+            if (disposed || data == null) throw new GdxRuntimeException("Face has no font data to share");
+            dataReferences++;
+            return data;
+        }
+
+        void releaseData() {
+            if (--dataReferences == 0 && disposed && ownsData)
+                freeData();
         }
 
+        private void freeData() {
+            if (BufferUtils.isUnsafeByteBuffer(data))
+                BufferUtils.disposeUnsafeByteBuffer(data);
+            data = null;
+        }
+
+        public int getFaceIndex() {
+            return getFaceIndex(address);
+        }
+
+        private static native int getFaceIndex(long face); /*
+			return ((FT_Face)face)->face_index & 0xFFFF;
+		*/
+
         private static native void doneFace(long face); /*
 			FT_Done_Face((FT_Face)face);
 		*/
@@ -241,8 +518,80 @@ public class FreeType {
 			return ((FT_Face)face)->underline_thickness;
 		*/
 
+        public int getUnitsPerEM() {
+            return getUnitsPerEM(address);
+        }
+
+        private static native int getUnitsPerEM(long face); /*
+			return ((FT_Face)face)->units_per_EM;
+		*/
+
+        /** Size metrics are all 0 if the face has no active size. */
+        public void getMetrics(int[] faceOut, int[] sizeOut) {
+            checkLength(faceOut, FACE_METRICS_LENGTH);
+            checkLength(sizeOut, SIZE_METRICS_LENGTH);
+            getMetrics(address, faceOut, sizeOut);
+        }
+
+        private static native void getMetrics(long face, int[] faceOut, int[] sizeOut); /*
+			FT_Face f = (FT_Face)face;
+			faceOut[0] = f->units_per_EM;
+			faceOut[1] = f->ascender;
+			faceOut[2] = f->descender;
+			faceOut[3] = f->height;
+			faceOut[4] = f->max_advance_width;
+			faceOut[5] = f->max_advance_height;
+			faceOut[6] = f->underline_position;
+			faceOut[7] = f->underline_thickness;
+			faceOut[8] = (int)f->num_glyphs;
+			faceOut[9] = (int)f->face_flags;
+			faceOut[10] = (int)f->style_flags;
+			if(f->size) fillSizeMetrics(&f->size->metrics, sizeOut);
+			else memset(sizeOut, 0, 8 * sizeof(int));
+		*/
+
+        /** Cached per size object until the size changes. */
+        public FontMetrics getFontMetrics() {
+            long size = getActiveSize();
+            FontMetrics metrics = fontMetrics.get(size);
+            if (metrics == null) {
+                int[] faceValues = new int[FACE_METRICS_LENGTH], sizeValues = new int[SIZE_METRICS_LENGTH];
+                getMetrics(address, faceValues, sizeValues);
+                metrics = new FontMetrics(faceValues, sizeValues);
+                fontMetrics.put(size, metrics);
+            }
+            return metrics;
+        }
+
+        private long getActiveSize() {
+            if (activeSize == 0) activeSize = getSize(address);
+            return activeSize;
+        }
+
+        private void sizeChanged() {
+            fontMetrics.remove(getActiveSize());
+        }
+
+        public boolean loadGlyphMetrics(int glyphIndex, int loadFlags, int[] out) {
+            checkLength(out, GLYPH_METRICS_LENGTH);
+            return loadGlyphMetrics(address, glyphIndex, loadFlags, out);
+        }
+
+        private static native boolean loadGlyphMetrics(long face, int glyphIndex, int loadFlags, int[] out); /*
+			FT_Face f = (FT_Face)face;
+			FT_Error error = FT_Load_Glyph(f, glyphIndex, loadFlags);
+			if(error) {
+				lastError = error;
+				return false;
+			}
+			fillGlyphSlotMetrics(f->glyph, out);
+			return true;
+		*/
+
         public boolean selectSize(int strikeIndex) {
-            return selectSize(address, strikeIndex);
+            if (!selectSize(address, strikeIndex)) return false;
+            sizeChanged();
+            return true;
         }
 
         private static native boolean selectSize(long face, int strike_index); /*
@@ -250,7 +599,9 @@ public class FreeType {
 		*/
 
         public boolean setCharSize(int charWidth, int charHeight, int horzResolution, int vertResolution) {
-            return setCharSize(address, charWidth, charHeight, horzResolution, vertResolution);
+            if (!setCharSize(address, charWidth, charHeight, horzResolution, vertResolution)) return false;
+            sizeChanged();
+            return true;
         }
 
         private static native boolean setCharSize(long face, int charWidth, int charHeight, int horzResolution, int vertResolution); /*
@@ -258,7 +609,9 @@ public class FreeType {
 		*/
 
         public boolean setPixelSizes(int pixelWidth, int pixelHeight) {
-            return setPixelSizes(address, pixelWidth, pixelHeight);
+            if (!setPixelSizes(address, pixelWidth, pixelHeight)) return false;
+            sizeChanged();
+            return true;
         }
 
         private static native boolean setPixelSizes(long face, int pixelWidth, int pixelHeight); /*
@@ -290,9 +643,36 @@ public class FreeType {
 		*/
 
         public Size getSize() {
-            return new Size(getSize(address));
+            return new Size(getSize(address), this);
+        }
+
+        /** Call {@link Size#activate()} before setting pixel sizes or loading glyphs for the new size. */
+        public Size newSize() {
+            long size = newSize(address);
+            if (size == 0) throw new GdxRuntimeException("Couldn't create FreeType size, FreeType error code: " + getLastErrorCode());
+            return new Size(size, this);
+        }
+
+        private static native long newSize(long face); /*
+			FT_Size size;
+			FT_Error error = FT_New_Size((FT_Face)face, &size);
+			if(error) {
+				lastError = error;
+				return 0;
+			}
+			else return (jlong)size;
+		*/
+
+        public void doneSize(Size size) {
+            fontMetrics.remove(size.address);
+            if (activeSize == size.address) activeSize = 0;
+            doneSize(size.address);
         }
 
+        private static native void doneSize(long size); /*
+			FT_Done_Size((FT_Size)size);
+		*/
+
         private static native long getSize(long face); /*
 			return (jlong)((FT_Face)face)->size;
 		*/
@@ -316,6 +696,98 @@ public class FreeType {
 			return kerning.x;
 		*/
 
+        /**
+         * Loads and renders every glyph in one native call, packing bitmaps into {@code out} from its position. Returns
+         * the number of glyphs that fit, or the negated byte count of the first one if none did.
+         */
+        public int renderGlyphs(int[] glyphIds, int loadFlags, int renderMode, ByteBuffer out, int[] metricsOut) {
+            return renderGlyphs(glyphIds, 0, glyphIds.length, loadFlags, renderMode, out, metricsOut);
+        }
+
+        public int renderGlyphs(int[] glyphIds, int offset, int count, int loadFlags, int renderMode, ByteBuffer out, int[] metricsOut) {
+            if (!out.isDirect()) throw new GdxRuntimeException("Buffer must be direct");
+            if (offset < 0 || count < 0 || offset + count > glyphIds.length)
+                throw new IndexOutOfBoundsException("offset: " + offset + ", count: " + count + ", length: " + glyphIds.length);
+            if (metricsOut.length < count * RENDER_STRIDE)
+                throw new IllegalArgumentException("metricsOut must hold " + count * RENDER_STRIDE + " ints");
+            int rendered = renderGlyphs(address, glyphIds, offset, count, loadFlags, renderMode, out, out.position(), out.limit(), metricsOut);
+            if (rendered > 0) {
+                int last = (rendered - 1) * RENDER_STRIDE;
+                out.position(metricsOut[last + RENDER_OFFSET] + metricsOut[last + RENDER_ROWS] * metricsOut[last + RENDER_PITCH]);
+            }
+            return rendered;
+        }
+
+        private static native int renderGlyphs(long face, int[] glyphIds, int offset, int count, int loadFlags, int renderMode, ByteBuffer out, int outStart, int outLimit, int[] metricsOut); /*
+			FT_Face f = (FT_Face)face;
+			unsigned char* target = (unsigned char*)out;
+			int position = outStart;
+			for(int i = 0; i < count; i++) {
+				int* m = metricsOut + i * RENDER_STRIDE;
+				memset(m, 0, RENDER_STRIDE * sizeof(int));
+				m[0] = position;
+				FT_Error error = FT_Load_Glyph(f, glyphIds[offset + i], loadFlags);
+				if(!error && f->glyph->format != FT_GLYPH_FORMAT_BITMAP)
+					error = FT_Render_Glyph(f->glyph, (FT_Render_Mode)renderMode);
+				if(error) {
+					m[9] = error;
+					continue;
+				}
+				FT_GlyphSlot slot = f->glyph;
+				FT_Bitmap* bitmap = &slot->bitmap;
+				int rowBytes = abs(bitmap->pitch);
+				int size = rowBytes * bitmap->rows;
+				if(position + size > outLimit) return i > 0 ? i : -size;
+				for(unsigned int y = 0; y < bitmap->rows; y++) {
+					unsigned int row = bitmap->pitch < 0 ? bitmap->rows - 1 - y : y;
+					memcpy(target + position + y * rowBytes, bitmap->buffer + row * rowBytes, rowBytes);
+				}
+				m[1] = bitmap->width;
+				m[2] = bitmap->rows;
+				m[3] = rowBytes;
+				m[4] = slot->bitmap_left;
+				m[5] = slot->bitmap_top;
+				m[6] = slot->advance.x;
+				m[7] = slot->advance.y;
+				m[8] = bitmap->pixel_mode;
+				position += size;
+			}
+			return count;
+		*/
+
+        /**
+         * Loads a glyph and decomposes its outline in one call. {@code countsOut} receives the command count, the
+         * coordinate count and the advance; grow the arrays and call again if a count exceeds its array.
+         */
+        public boolean decomposeOutline(int glyphIndex, int loadFlags, float[] coords, byte[] commands, int[] countsOut) {
+            return decomposeOutline(address, glyphIndex, loadFlags, coords, coords.length, commands, commands.length, countsOut);
+        }
+
+        private static native boolean decomposeOutline(long face, int glyphIndex, int loadFlags, float[] coords, int coordCapacity, byte[] commands, int commandCapacity, int[] countsOut); /*
+			FT_Face f = (FT_Face)face;
+			FT_Error error = FT_Load_Glyph(f, glyphIndex, loadFlags | FT_LOAD_NO_BITMAP);
+			if(!error && f->glyph->format != FT_GLYPH_FORMAT_OUTLINE) error = FT_Err_Invalid_Glyph_Format;
+			if(!error) {
+				OutlineSink sink = {coords, coordCapacity, 0, commands, commandCapacity, 0};
+				FT_Outline_Funcs funcs;
+				funcs.move_to = outlineMoveTo;
+				funcs.line_to = outlineLineTo;
+				funcs.conic_to = outlineConicTo;
+				funcs.cubic_to = outlineCubicTo;
+				funcs.shift = 0;
+				funcs.delta = 0;
+				error = FT_Outline_Decompose(&f->glyph->outline, &funcs, &sink);
+				countsOut[0] = sink.commandCount;
+				countsOut[1] = sink.coordCount;
+				countsOut[2] = f->glyph->advance.x;
+			}
+			if(error) {
+				lastError = error;
+				return false;
+			}
+			return true;
+		*/
+
         public int getCharIndex(int charCode) {
             return getCharIndex(address, charCode);
         }
@@ -324,17 +796,87 @@ public class FreeType {
 			return FT_Get_Char_Index((FT_Face)face, charCode);
 		*/
 
+        public void getCharIndices(int[] codepoints, int[] glyphsOut) {
+            getCharIndices(codepoints, 0, codepoints.length, glyphsOut, 0);
+        }
+
+        public void getCharIndices(int[] codepoints, int offset, int count, int[] glyphsOut, int glyphsOffset) {
+            if (offset < 0 || count < 0 || offset + count > codepoints.length || glyphsOffset < 0 || glyphsOffset + count > glyphsOut.length)
+                throw new IndexOutOfBoundsException();
+            getCharIndices(address, codepoints, offset, count, glyphsOut, glyphsOffset);
+        }
+
+        private static native void getCharIndices(long face, int[] codepoints, int offset, int count, int[] glyphsOut, int glyphsOffset); /*
+			FT_Face f = (FT_Face)face;
+			for(int i = 0; i < count; i++)
+				glyphsOut[glyphsOffset + i] = FT_Get_Char_Index(f, (FT_ULong)(unsigned int)codepoints[offset + i]);
+		*/
+
+        /** Returns the number of characters, which may exceed the arrays; grow them and call again then. */
+        public int getCharMap(int[] charsOut, int[] glyphsOut) {
+            return getCharMap(address, charsOut, glyphsOut, Math.min(charsOut.length, glyphsOut.length));
+        }
+
+        private static native int getCharMap(long face, int[] charsOut, int[] glyphsOut, int capacity); /*
+			FT_Face f = (FT_Face)face;
+			FT_UInt glyph;
+			FT_ULong c = FT_Get_First_Char(f, &glyph);
+			int count = 0;
+			while(glyph != 0) {
+				if(count < capacity) {
+					charsOut[count] = (int)c;
+					glyphsOut[count] = glyph;
+				}
+				count++;
+				c = FT_Get_Next_Char(f, c, &glyph);
+			}
+			return count;
+		*/
+
+        /** Call {@link #clearCharIndexTable()} after changing the charmap. */
+        public CharIndexTable getCharIndexTable() {
+            if (charIndexTable == null) charIndexTable = new CharIndexTable(this);
+            return charIndexTable;
+        }
+
+        public void clearCharIndexTable() {
+            charIndexTable = null;
+        }
+
     }
 
     public static class Size extends Pointer {
+        /** Face the size belongs to, or null if unknown. */
+        final Face face;
+
         Size (long address) {
+            this(address, null);
+        }
+
+        Size (long address, Face face) {
             super(address);
+            this.face = face;
         }
 
         public SizeMetrics getMetrics() {
             return new SizeMetrics(getMetrics(address));
         }
 
+        public void getMetrics(int[] out) {
+            checkLength(out, SIZE_METRICS_LENGTH);
+            SizeMetrics.snapshot(getMetrics(address), out);
+        }
+
+        public boolean activate() {
+            if (!activate(address)) return false;
+            if (face != null) face.activeSize = address;
+            return true;
+        }
+
+        private static native boolean activate(long size); /*
+			return !FT_Activate_Size((FT_Size)size);
+		*/
+
         private static native long getMetrics(long address); /*
 			return (jlong)&((FT_Size)address)->metrics;
 		*/
@@ -345,6 +887,15 @@ public class FreeType {
             super(address);
         }
 
+        public void snapshot(int[] out) {
+            checkLength(out, SIZE_METRICS_LENGTH);
+            snapshot(address, out);
+        }
+
+        private static native void snapshot(long metrics, int[] out); /*
+			fillSizeMetrics((FT_Size_Metrics*)metrics, out);
+		*/
+
         public int getXppem() {
             return getXppem(address);
         }
@@ -419,6 +970,15 @@ public class FreeType {
             return new GlyphMetrics(getMetrics(address));
         }
 
+        public void getMetrics(int[] out) {
+            checkLength(out, GLYPH_METRICS_LENGTH);
+            getMetricsSnapshot(address, out);
+        }
+
+        private static native void getMetricsSnapshot(long slot, int[] out); /*
+			fillGlyphSlotMetrics((FT_GlyphSlot)slot, out);
+		*/
+
         private static native long getMetrics(long slot); /*
 			return (jlong)&((FT_GlyphSlot)slot)->metrics;
 		*/
@@ -642,69 +1202,178 @@ public class FreeType {
         // @on
         public Pixmap getPixmap (Format format, Color color, float gamma) {
             int width = getWidth(), rows = getRows();
-            ByteBuffer src = getBuffer();
-            Pixmap pixmap;
-            int pixelMode = getPixelMode();
-            int rowBytes = Math.abs(getPitch()); // We currently ignore negative pitch.
-            if (color == Color.WHITE && pixelMode == FT_PIXEL_MODE_GRAY && rowBytes == width && gamma == 1) {
-                pixmap = new Pixmap(width, rows, Format.Alpha);
-                BufferUtils.copy(src, pixmap.getPixels(), pixmap.getPixels().capacity());
-            } else {
-                pixmap = new Pixmap(width, rows, Format.RGBA8888);
-                int rgba = Color.rgba8888(color);
-                byte[] srcRow = new byte[rowBytes];
-                int[] dstRow = new int[width];
-                IntBuffer dst = pixmap.getPixels().asIntBuffer();
-                if (pixelMode == FT_PIXEL_MODE_MONO) {
+            Pixmap pixmap = new Pixmap(width, rows, format);
+            convert(getBuffer(), width, rows, getPitch(), getPixelMode(), format, Color.rgba8888(color), gamma, pixmap.getPixels());
+            return pixmap;
+        }
+
+        /** Leaves the position of {@code pixels} untouched. */
+        static void convert (ByteBuffer src, int width, int rows, int pitch, int pixelMode, Format format, int rgba, float gamma,
+            ByteBuffer pixels) {
+            int rowBytes = Math.abs(pitch);
+            ByteBuffer dst = pixels.duplicate();
+            if ((format == Format.Alpha || format == Format.Intensity) && pixelMode == FT_PIXEL_MODE_GRAY && pitch == width
+                && gamma == 1 && (rgba & 0xff) == 0xff) {
+                BufferUtils.copy(src, dst, width * rows);
+                return;
+            }
+
+            PixmapScratch scratch = PixmapScratch.local.get().ensure(width, rowBytes);
+            byte[] srcRow = scratch.srcRow;
+            int[] row = scratch.row;
+            int[] alphas = pixelMode == FT_PIXEL_MODE_MONO ? null : scratch.alphas(rgba & 0xff, gamma);
+            int rgb = rgba & 0xffffff00;
+            IntBuffer ints = format == Format.RGBA8888 ? dst.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer() : null;
+            ShortBuffer shorts = format == Format.RGB565 || format == Format.RGBA4444 ? dst.duplicate().order(ByteOrder.nativeOrder()).asShortBuffer() : null;
+            for (int y = 0; y < rows; y++) {
+                // Rows are stored bottom-up when the pitch is negative.
+                src.position((pitch < 0 ? rows - 1 - y : y) * rowBytes);
+                src.get(srcRow, 0, rowBytes);
+                if (alphas == null) {
                     // Use the specified color for each set bit.
-                    for (int y = 0; y < rows; y++) {
-                        src.get(srcRow);
-                        for (int i = 0, x = 0; x < width; i++, x += 8) {
-                            byte b = srcRow[i];
-                            for (int ii = 0, n = Math.min(8, width - x); ii < n; ii++) {
-                                if ((b & (1 << (7 - ii))) != 0)
-                                    dstRow[x + ii] = rgba;
-                                else
-                                    dstRow[x + ii] = 0;
-                            }
-                        }
-                        dst.put(dstRow);
+                    for (int i = 0, x = 0; x < width; i++, x += 8) {
+                        byte b = srcRow[i];
+                        for (int ii = 0, n = Math.min(8, width - x); ii < n; ii++)
+                            row[x + ii] = (b & (1 << (7 - ii))) != 0 ? rgba : 0;
                     }
                 } else {
-                    // Use the specified color for RGB, blend the FreeType bitmap with alpha.
-                    int rgb = rgba & 0xffffff00;
-                    int a = rgba & 0xff;
-                    for (int y = 0; y < rows; y++) {
-                        src.get(srcRow);
-                        for (int x = 0; x < width; x++) {
-                            // Zero raised to any power is always zero.
-                            // 255 (=one) raised to any power is always one.
-                            // We only need Math.pow() when alpha is NOT zero and NOT one.
-                            int alpha = srcRow[x] & 0xff;
-                            if (alpha == 0)
-                                dstRow[x] = rgb;
-                            else if (alpha == 255)
-                                dstRow[x] = rgb | a;
-                            else
-                                dstRow[x] = rgb | (int)(a * (float)Math.pow(alpha / 255f, gamma)); // Inverse gamma.
-                        }
-                        dst.put(dstRow);
-                    }
+                    // Use the specified color for RGB, blend the FreeType bitmap with alpha through the gamma table.
+                    for (int x = 0; x < width; x++)
+                        row[x] = rgb | alphas[srcRow[x] & 0xff];
+                }
+                scratch.write(format, row, width, y, dst, ints, shorts);
+            }
+            src.clear();
+        }
+
+        private static class PixmapScratch {
+            static final ThreadLocal<PixmapScratch> local = new ThreadLocal<PixmapScratch>() {
+                @Override
+                protected PixmapScratch initialValue() {
+                    return new PixmapScratch();
+                }
+            };
+
+            byte[] srcRow = new byte[0];
+            int[] row = new int[0];
+            byte[] bytes = new byte[0];
+            short[] shortRow = new short[0];
+            final int[] alphas = new int[256];
+            int alphasAlpha = -1;
+            float alphasGamma;
+
+            PixmapScratch ensure(int width, int rowBytes) {
+                if (srcRow.length < rowBytes) srcRow = new byte[rowBytes];
+                if (row.length < width) {
+                    row = new int[width];
+                    bytes = new byte[width * 3];
+                    shortRow = new short[width];
+                }
+                return this;
+            }
+
+            /** {@code a * (coverage / 255) ^ gamma} for every coverage value. */
+            int[] alphas(int a, float gamma) {
+                if (a != alphasAlpha || gamma != alphasGamma) {
+                    // Zero raised to any power is always zero.
+                    // 255 (=one) raised to any power is always one.
+                    alphas[0] = 0;
+                    for (int i = 1; i < 255; i++)
+                        alphas[i] = (int)(a * (float)Math.pow(i / 255f, gamma)); // Inverse gamma.
+                    alphas[255] = a;
+                    alphasAlpha = a;
+                    alphasGamma = gamma;
                 }
+                return alphas;
             }
 
-            Pixmap converted = pixmap;
-            if (format != pixmap.getFormat()) {
-                converted = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), format);
-                converted.setBlending(Blending.None);
-                converted.drawPixmap(pixmap, 0, 0);
-                converted.setBlending(Blending.SourceOver);
-                pixmap.dispose();
+            void write(Format format, int[] row, int width, int y, ByteBuffer dst, IntBuffer ints, ShortBuffer shorts) {
+                switch (format) {
+                    case RGBA8888:
+                        ints.position(y * width);
+                        ints.put(row, 0, width);
+                        return;
+                    case RGB565:
+                        for (int x = 0; x < width; x++) {
+                            int c = row[x];
+                            shortRow[x] = (short)(((c >>> 27) << 11) | (((c >>> 18) & 0x3f) << 5) | ((c >>> 11) & 0x1f));
+                        }
+                        shorts.position(y * width);
+                        shorts.put(shortRow, 0, width);
+                        return;
+                    case RGBA4444:
+                        for (int x = 0; x < width; x++) {
+                            int c = row[x];
+                            shortRow[x] = (short)(((c >>> 28) << 12) | (((c >>> 20) & 0xf) << 8) | (((c >>> 12) & 0xf) << 4) | ((c >>> 4) & 0xf));
+                        }
+                        shorts.position(y * width);
+                        shorts.put(shortRow, 0, width);
+                        return;
+                    case RGB888:
+                        for (int x = 0, i = 0; x < width; x++) {
+                            int c = row[x];
+                            bytes[i++] = (byte)(c >>> 24);
+                            bytes[i++] = (byte)(c >>> 16);
+                            bytes[i++] = (byte)(c >>> 8);
+                        }
+                        dst.position(y * width * 3);
+                        dst.put(bytes, 0, width * 3);
+                        return;
+                    case LuminanceAlpha:
+                        for (int x = 0, i = 0; x < width; x++) {
+                            int c = row[x];
+                            bytes[i++] = (byte)(0.2126f * (c >>> 24) + 0.7152f * ((c >>> 16) & 0xff) + 0.0722f * ((c >>> 8) & 0xff));
+                            bytes[i++] = (byte)c;
+                        }
+                        dst.position(y * width * 2);
+                        dst.put(bytes, 0, width * 2);
+                        return;
+                    default: // Alpha and Intensity
+                        for (int x = 0; x < width; x++)
+                            bytes[x] = (byte)row[x];
+                        dst.position(y * width);
+                        dst.put(bytes, 0, width);
+                }
             }
-            return converted;
         }
         // @off
 
+        /** A third of the width for LCD bitmaps. */
+        public int getBlitWidth() {
+            int width = getWidth();
+            return getPixelMode() == FT_PIXEL_MODE_LCD ? width / 3 : width;
+        }
+
+        /** A third of the rows for LCD_V bitmaps. */
+        public int getBlitRows() {
+            int rows = getRows();
+            return getPixelMode() == FT_PIXEL_MODE_LCD_V ? rows / 3 : rows;
+        }
+
+        /**
+         * Converts the bitmap in native code into {@code dst}, a gdx2d image. Returns false if the pixel mode or format
+         * is not supported.
+         */
+        public boolean blitInto(ByteBuffer dst, int dstStride, int x, int y, int dstFormat, int rgba, float gamma) {
+            if (!dst.isDirect()) throw new GdxRuntimeException("Buffer must be direct");
+            int width = getBlitWidth(), rows = getBlitRows();
+            if (width == 0 || rows == 0) return true;
+            int bpp = dstFormat == 1 ? 1 : dstFormat == 3 ? 3 : dstFormat == 4 ? 4 : 2;
+            if (x < 0 || y < 0 || (x + width) * bpp > dstStride || (long)(y + rows - 1) * dstStride + (long)(x + width) * bpp > dst.capacity())
+                throw new GdxRuntimeException("Bitmap of " + width + "x" + rows + " at " + x + ", " + y + " does not fit the destination");
+            return blit(address, dst, dstStride, x, y, dstFormat, rgba, gamma);
+        }
+
+        public boolean blitInto(Pixmap pixmap, int x, int y, Color color, float gamma) {
+            int format = Format.toGdx2DPixmapFormat(pixmap.getFormat());
+            int bpp = format == 1 ? 1 : format == 3 ? 3 : format == 4 ? 4 : 2;
+            return blitInto(pixmap.getPixels(), pixmap.getWidth() * bpp, x, y, format, Color.rgba8888(color), gamma);
+        }
+
+        private static native boolean blit(long bitmap, ByteBuffer dst, int dstStride, int x, int y, int dstFormat, int rgba, float gamma); /*
+			return blitBitmap((FT_Bitmap*)bitmap, (unsigned char*)dst, dstStride, x, y, dstFormat, (unsigned int)rgba, gamma);
+		*/
+
         public int getNumGray() {
             return getNumGray(address);
         }
@@ -727,6 +1396,15 @@ public class FreeType {
             super(address);
         }
 
+        public void snapshot(int[] out) {
+            checkLength(out, GLYPH_METRICS_VERT_ADVANCE + 1);
+            snapshot(address, out);
+        }
+
+        private static native void snapshot(long metrics, int[] out); /*
+			fillGlyphMetrics((FT_Glyph_Metrics*)metrics, out);
+		*/
+
         public int getWidth() {
             return getWidth(address);
         }
@@ -815,6 +1493,25 @@ public class FreeType {
 		*/
     }
 
+    static void checkLength(int[] out, int length) {
+        if (out.length < length) throw new IllegalArgumentException("Output array must hold " + length + " values, got " + out.length);
+    }
+
+    public static final int RENDER_STRIDE = 10;
+
+    /** Advances are in 26.6 pixels. */
+    public static final int
+        RENDER_OFFSET = 0,
+        RENDER_WIDTH = 1,
+        RENDER_ROWS = 2,
+        RENDER_PITCH = 3,
+        RENDER_LEFT = 4,
+        RENDER_TOP = 5,
+        RENDER_ADVANCE_X = 6,
+        RENDER_ADVANCE_Y = 7,
+        RENDER_PIXEL_MODE = 8,
+        RENDER_ERROR = 9;
+
     public static int FT_PIXEL_MODE_NONE = 0;
     public static int FT_PIXEL_MODE_MONO = 1;
     public static int FT_PIXEL_MODE_GRAY = 2;
@@ -882,12 +1579,63 @@ public class FreeType {
     public static int FT_LOAD_TARGET_LCD                   = 0x30000;
     public static int FT_LOAD_TARGET_LCD_V                 = 0x40000;
 
+    /** Font units. */
+    public static final int FACE_METRICS_UNITS_PER_EM = 0;
+    public static final int FACE_METRICS_ASCENDER = 1;
+    public static final int FACE_METRICS_DESCENDER = 2;
+    public static final int FACE_METRICS_HEIGHT = 3;
+    public static final int FACE_METRICS_MAX_ADVANCE_WIDTH = 4;
+    public static final int FACE_METRICS_MAX_ADVANCE_HEIGHT = 5;
+    public static final int FACE_METRICS_UNDERLINE_POSITION = 6;
+    public static final int FACE_METRICS_UNDERLINE_THICKNESS = 7;
+    public static final int FACE_METRICS_NUM_GLYPHS = 8;
+    public static final int FACE_METRICS_FACE_FLAGS = 9;
+    public static final int FACE_METRICS_STYLE_FLAGS = 10;
+    public static final int FACE_METRICS_LENGTH = 11;
+
+    /** Scales in 16.16, the rest in 26.6 pixels. */
+    public static final int SIZE_METRICS_XPPEM = 0;
+    public static final int SIZE_METRICS_YPPEM = 1;
+    public static final int SIZE_METRICS_X_SCALE = 2;
+    public static final int SIZE_METRICS_Y_SCALE = 3;
+    public static final int SIZE_METRICS_ASCENDER = 4;
+    public static final int SIZE_METRICS_DESCENDER = 5;
+    public static final int SIZE_METRICS_HEIGHT = 6;
+    public static final int SIZE_METRICS_MAX_ADVANCE = 7;
+    public static final int SIZE_METRICS_LENGTH = 8;
+
+    /** Linear advances in 16.16, the rest in 26.6 pixels or font units. */
+    public static final int GLYPH_METRICS_WIDTH = 0;
+    public static final int GLYPH_METRICS_HEIGHT = 1;
+    public static final int GLYPH_METRICS_HORI_BEARING_X = 2;
+    public static final int GLYPH_METRICS_HORI_BEARING_Y = 3;
+    public static final int GLYPH_METRICS_HORI_ADVANCE = 4;
+    public static final int GLYPH_METRICS_VERT_BEARING_X = 5;
+    public static final int GLYPH_METRICS_VERT_BEARING_Y = 6;
+    public static final int GLYPH_METRICS_VERT_ADVANCE = 7;
+    public static final int GLYPH_METRICS_LINEAR_HORI_ADVANCE = 8;
+    public static final int GLYPH_METRICS_LINEAR_VERT_ADVANCE = 9;
+    public static final int GLYPH_METRICS_ADVANCE_X = 10;
+    public static final int GLYPH_METRICS_ADVANCE_Y = 11;
+    public static final int GLYPH_METRICS_BITMAP_LEFT = 12;
+    public static final int GLYPH_METRICS_BITMAP_TOP = 13;
+    public static final int GLYPH_METRICS_FORMAT = 14;
+    public static final int GLYPH_METRICS_LENGTH = 15;
+
+    /** Outline commands of {@link Face#decomposeOutline(int, int, float[], byte[], int[])}. */
+    public static final int OUTLINE_MOVE_TO = 0;
+    public static final int OUTLINE_LINE_TO = 1;
+    public static final int OUTLINE_CONIC_TO = 2;
+    public static final int OUTLINE_CUBIC_TO = 3;
+
     public static int FT_RENDER_MODE_NORMAL = 0;
     public static int FT_RENDER_MODE_LIGHT = 1;
     public static int FT_RENDER_MODE_MONO = 2;
     public static int FT_RENDER_MODE_LCD = 3;
     public static int FT_RENDER_MODE_LCD_V = 4;
-    public static int FT_RENDER_MODE_MAX = 5;
+    /** Needs FreeType 2.11 or later. */
+    public static int FT_RENDER_MODE_SDF = 5;
+    public static int FT_RENDER_MODE_MAX = 6;
 
     public static int FT_KERNING_DEFAULT = 0;
     public static int FT_KERNING_UNFITTED = 1;
@@ -0,0 +1,387 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Blending;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Skyline-packed glyph pages. When no page has room the least recently used one is cleared and reused, and its glyphs
+ * are reported to the {@link EvictionListener}. Not thread-safe.
+ * <p>
+ * A distance field atlas serves every size from one rendering; scale its metrics by
+ * {@link #getDistanceFieldScale(float)}.
+ */
+public class GlyphAtlas implements Disposable {
+    private final int pageWidth;
+    private final int pageHeight;
+    private final Format format;
+    private final int maxPages;
+    private final int padding;
+    private final int distanceFieldSize;
+    private final Array<Page> pages = new Array<Page>();
+    private final LongMap<Glyph> glyphs = new LongMap<Glyph>();
+    private long clock;
+    private EvictionListener evictionListener;
+
+    public GlyphAtlas(int pageWidth, int pageHeight, Format format, int maxPages, int padding) {
+        this(pageWidth, pageHeight, format, maxPages, padding, 0);
+    }
+
+    /** Pass 0 for {@code distanceFieldSize} to get a plain bitmap atlas. */
+    public GlyphAtlas(int pageWidth, int pageHeight, Format format, int maxPages, int padding, int distanceFieldSize) {
+        if (maxPages < 1) throw new IllegalArgumentException("maxPages must be at least 1");
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.format = format;
+        this.maxPages = maxPages;
+        this.padding = padding;
+        this.distanceFieldSize = distanceFieldSize;
+    }
+
+    /** Face ids and pixel sizes must be below 65536. */
+    public static long key(int faceId, int pixelSize, int glyphIndex) {
+        if ((faceId & ~0xFFFF) != 0 || (pixelSize & ~0xFFFF) != 0)
+            throw new IllegalArgumentException("Face id " + faceId + " or pixel size " + pixelSize + " out of range");
+        return ((long) faceId << 48) | ((long) pixelSize << 32) | (glyphIndex & 0xFFFFFFFFL);
+    }
+
+    public static long distanceFieldKey(int faceId, int glyphIndex) {
+        return key(faceId, 0, glyphIndex);
+    }
+
+    public Glyph get(long key) {
+        Glyph glyph = glyphs.get(key);
+        if (glyph != null) glyph.page.lastUsed = ++clock;
+        return glyph;
+    }
+
+    public Glyph put(long key, Pixmap pixmap, int bearingX, int bearingY, int advance) {
+        Glyph glyph = allocate(key, pixmap.getWidth(), pixmap.getHeight(), bearingX, bearingY, advance);
+        if (glyph.width > 0 && glyph.height > 0) {
+            Pixmap target = glyph.page.pixmap;
+            Blending blending = target.getBlending();
+            target.setBlending(Blending.None);
+            target.drawPixmap(pixmap, glyph.x, glyph.y);
+            target.setBlending(blending);
+        }
+        return glyph;
+    }
+
+    public Glyph put(long key, FreeType.Bitmap bitmap, int bearingX, int bearingY, int advance, Color color, float gamma) {
+        Glyph glyph = allocate(key, bitmap.getBlitWidth(), bitmap.getBlitRows(), bearingX, bearingY, advance);
+        if (glyph.width > 0 && glyph.height > 0 && !bitmap.blitInto(glyph.page.pixmap, glyph.x, glyph.y, color, gamma)) {
+            remove(key);
+            throw new GdxRuntimeException("Unsupported pixel mode " + bitmap.getPixelMode() + " or atlas format " + format);
+        }
+        return glyph;
+    }
+
+    public Glyph putDistanceField(long key, FreeType.Bitmap bitmap, int bearingX, int bearingY, int advance) {
+        if (distanceFieldSize == 0) throw new GdxRuntimeException("Not a distance field atlas");
+        return put(key, bitmap, bearingX, bearingY, advance, Color.WHITE, 1);
+    }
+
+    /** Reserves room without copying pixels; the caller fills the glyph's region of its page. */
+    public Glyph allocate(long key, int width, int height, int bearingX, int bearingY, int advance) {
+        if (width + padding * 2 > pageWidth || height + padding * 2 > pageHeight)
+            throw new GdxRuntimeException("Glyph of " + width + "x" + height + " does not fit a page");
+        remove(key);
+        Page page = null;
+        int x = 0, y = 0;
+        if (width > 0 && height > 0) {
+            for (int i = pages.size - 1; i >= 0 && page == null; i--) {
+                long position = pages.get(i).skyline.insert(width + padding * 2, height + padding * 2);
+                if (position >= 0) {
+                    page = pages.get(i);
+                    x = (int) (position >>> 32);
+                    y = (int) position;
+                }
+            }
+            if (page == null) {
+                page = newPage();
+                long position = page.skyline.insert(width + padding * 2, height + padding * 2);
+                x = (int) (position >>> 32);
+                y = (int) position;
+            }
+            x += padding;
+            y += padding;
+            page.markDirty(x, y, width, height);
+        } else {
+            page = pages.size > 0 ? pages.peek() : newPage();
+        }
+        Glyph glyph = new Glyph(key, page, x, y, width, height, bearingX, bearingY, advance);
+        page.glyphs.add(glyph);
+        page.lastUsed = ++clock;
+        glyphs.put(key, glyph);
+        return glyph;
+    }
+
+    public void remove(long key) {
+        Glyph glyph = glyphs.remove(key);
+        if (glyph != null) glyph.page.glyphs.removeValue(glyph, true);
+    }
+
+    public Array<Page> getPages() {
+        return pages;
+    }
+
+    public void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public int getPageWidth() {
+        return pageWidth;
+    }
+
+    public int getPageHeight() {
+        return pageHeight;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public boolean isDistanceField() {
+        return distanceFieldSize > 0;
+    }
+
+    public int getDistanceFieldSize() {
+        return distanceFieldSize;
+    }
+
+    public float getDistanceFieldScale(float pixelSize) {
+        return pixelSize / distanceFieldSize;
+    }
+
+    private Page newPage() {
+        if (pages.size < maxPages) {
+            Page page = new Page(pages.size, new Pixmap(pageWidth, pageHeight, format), pageWidth, pageHeight);
+            pages.add(page);
+            return page;
+        }
+        Page lru = pages.first();
+        for (Page page : pages) {
+            if (page.lastUsed < lru.lastUsed) lru = page;
+        }
+        for (Glyph glyph : lru.glyphs) {
+            glyphs.remove(glyph.key);
+        }
+        if (evictionListener != null) evictionListener.evicted(lru, lru.glyphs);
+        lru.clear();
+        return lru;
+    }
+
+    @Override
+    public void dispose() {
+        for (Page page : pages) {
+            page.pixmap.dispose();
+        }
+        pages.clear();
+        glyphs.clear();
+    }
+
+    public interface EvictionListener {
+        /** {@code glyphs} is only valid during the call. */
+        void evicted(Page page, Array<Glyph> glyphs);
+    }
+
+    public static class Glyph {
+        public final long key;
+        public final Page page;
+        private final int generation;
+        public final int x, y, width, height;
+        public final float u, v, u2, v2;
+        public final int bearingX, bearingY, advance;
+
+        Glyph(long key, Page page, int x, int y, int width, int height, int bearingX, int bearingY, int advance) {
+            this.key = key;
+            this.page = page;
+            this.generation = page.generation;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            int pageWidth = page.pixmap.getWidth(), pageHeight = page.pixmap.getHeight();
+            this.u = x / (float) pageWidth;
+            this.v = y / (float) pageHeight;
+            this.u2 = (x + width) / (float) pageWidth;
+            this.v2 = (y + height) / (float) pageHeight;
+            this.bearingX = bearingX;
+            this.bearingY = bearingY;
+            this.advance = advance;
+        }
+
+        /** False once the page has been evicted. */
+        public boolean isValid() {
+            return page.generation == generation;
+        }
+    }
+
+    public static class Page {
+        /** Stable for the lifetime of the atlas. */
+        public final int index;
+        final Pixmap pixmap;
+        final Skyline skyline;
+        final Array<Glyph> glyphs = new Array<Glyph>(false, 64);
+        long lastUsed;
+        int generation;
+        private int dirtyX1, dirtyY1, dirtyX2, dirtyY2;
+
+        Page(int index, Pixmap pixmap, int width, int height) {
+            this.index = index;
+            this.pixmap = pixmap;
+            this.skyline = new Skyline(width, height);
+            clearPixels();
+        }
+
+        public Pixmap getPixmap() {
+            return pixmap;
+        }
+
+        public boolean isDirty() {
+            return dirtyX2 > dirtyX1 && dirtyY2 > dirtyY1;
+        }
+
+        public int getDirtyX() {
+            return dirtyX1;
+        }
+
+        public int getDirtyY() {
+            return dirtyY1;
+        }
+
+        public int getDirtyWidth() {
+            return dirtyX2 - dirtyX1;
+        }
+
+        public int getDirtyHeight() {
+            return dirtyY2 - dirtyY1;
+        }
+
+        public void clearDirty() {
+            dirtyX1 = dirtyY1 = dirtyX2 = dirtyY2 = 0;
+        }
+
+        void markDirty(int x, int y, int width, int height) {
+            if (!isDirty()) {
+                dirtyX1 = x;
+                dirtyY1 = y;
+                dirtyX2 = x + width;
+                dirtyY2 = y + height;
+            } else {
+                dirtyX1 = Math.min(dirtyX1, x);
+                dirtyY1 = Math.min(dirtyY1, y);
+                dirtyX2 = Math.max(dirtyX2, x + width);
+                dirtyY2 = Math.max(dirtyY2, y + height);
+            }
+        }
+
+        void clear() {
+            generation++;
+            glyphs.clear();
+            skyline.clear();
+            clearPixels();
+        }
+
+        private void clearPixels() {
+            Blending blending = pixmap.getBlending();
+            pixmap.setBlending(Blending.None);
+            pixmap.setColor(0);
+            pixmap.fill();
+            pixmap.setBlending(blending);
+            markDirty(0, 0, pixmap.getWidth(), pixmap.getHeight());
+        }
+    }
+
+    /** Bottom-left skyline packer over x, y, width segment triples. */
+    static class Skyline {
+        private final int width;
+        private final int height;
+        private final IntArray segments = new IntArray(48);
+
+        Skyline(int width, int height) {
+            this.width = width;
+            this.height = height;
+            clear();
+        }
+
+        void clear() {
+            segments.clear();
+            segments.add(0);
+            segments.add(0);
+            segments.add(width);
+        }
+
+        /** Returns x in the high and y in the low 32 bits, or -1 if the rectangle does not fit. */
+        long insert(int w, int h) {
+            int[] s = segments.items;
+            int count = segments.size / 3;
+            int bestIndex = -1, bestY = Integer.MAX_VALUE, bestWidth = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                int x = s[i * 3];
+                if (x + w > width) break;
+                int y = fit(i, w);
+                if (y < 0 || y + h > height) continue;
+                int segmentWidth = s[i * 3 + 2];
+                if (y < bestY || (y == bestY && segmentWidth < bestWidth)) {
+                    bestIndex = i;
+                    bestY = y;
+                    bestWidth = segmentWidth;
+                }
+            }
+            if (bestIndex < 0) return -1;
+            int bestX = s[bestIndex * 3];
+            add(bestIndex, bestX, bestY + h, w);
+            return ((long) bestX << 32) | bestY;
+        }
+
+        private int fit(int index, int w) {
+            int[] s = segments.items;
+            int count = segments.size / 3;
+            int y = 0;
+            int remaining = w;
+            for (int i = index; remaining > 0; i++) {
+                if (i >= count) return -1;
+                y = Math.max(y, s[i * 3 + 1]);
+                remaining -= s[i * 3 + 2];
+            }
+            return y;
+        }
+
+        private void add(int index, int x, int y, int w) {
+            segments.insert(index * 3, w);
+            segments.insert(index * 3, y);
+            segments.insert(index * 3, x);
+            int[] s = segments.items;
+            // Shrink or remove the segments now covered by the new one.
+            int i = index + 1;
+            while (i < segments.size / 3) {
+                int end = s[index * 3] + s[index * 3 + 2];
+                int segmentX = s[i * 3];
+                if (segmentX >= end) break;
+                int shrink = end - segmentX;
+                s[i * 3] += shrink;
+                s[i * 3 + 2] -= shrink;
+                if (s[i * 3 + 2] > 0) break;
+                segments.removeRange(i * 3, i * 3 + 2);
+                s = segments.items;
+            }
+            // Merge neighbours at the same height.
+            for (i = 0; i < segments.size / 3 - 1; ) {
+                if (s[i * 3 + 1] == s[(i + 1) * 3 + 1]) {
+                    s[i * 3 + 2] += s[(i + 1) * 3 + 2];
+                    segments.removeRange((i + 1) * 3, (i + 1) * 3 + 2);
+                    s = segments.items;
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+}
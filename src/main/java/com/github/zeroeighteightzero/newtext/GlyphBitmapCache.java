@@ -0,0 +1,257 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Rendered glyph coverage in direct memory slabs. Once the byte budget is used up, the least recently used slab is
+ * emptied. Not thread-safe.
+ */
+public class GlyphBitmapCache implements Disposable {
+    private final int slabSize;
+    private final int maxBytes;
+    private final Array<Slab> slabs = new Array<Slab>();
+    private final HashMap<Key, Entry> entries = new HashMap<Key, Entry>();
+    private final Key probe = new Key();
+    private Slab current;
+    private int allocatedBytes;
+    private long clock;
+    private long hits;
+    private long misses;
+
+    /** Glyphs larger than {@code slabSize} get a slab of their own. */
+    public GlyphBitmapCache(int maxBytes, int slabSize) {
+        this.maxBytes = maxBytes;
+        this.slabSize = slabSize;
+    }
+
+    public GlyphBitmapCache(int maxBytes) {
+        this(maxBytes, 256 * 1024);
+    }
+
+    /** Pass 0 for all stroker parameters of unstroked glyphs. */
+    public Entry get(long face, int pixelSize, int glyphIndex, int renderMode, int strokeRadius, int strokeLineCap, int strokeLineJoin, int strokeMiterLimit) {
+        Entry entry = entries.get(probe.set(face, pixelSize, glyphIndex, renderMode, strokeRadius, strokeLineCap, strokeLineJoin, strokeMiterLimit));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        entry.slab.lastUsed = ++clock;
+        return entry;
+    }
+
+    public Entry get(long face, int pixelSize, int glyphIndex, int renderMode) {
+        return get(face, pixelSize, glyphIndex, renderMode, 0, 0, 0, 0);
+    }
+
+    public Entry put(long face, int pixelSize, int glyphIndex, int renderMode, int strokeRadius, int strokeLineCap, int strokeLineJoin, int strokeMiterLimit,
+                     FreeType.Bitmap bitmap, int left, int top, int advance) {
+        return put(face, pixelSize, glyphIndex, renderMode, strokeRadius, strokeLineCap, strokeLineJoin, strokeMiterLimit,
+            bitmap.getBuffer(), bitmap.getWidth(), bitmap.getRows(), bitmap.getPitch(), bitmap.getPixelMode(), left, top, advance);
+    }
+
+    /** Rows are bottom-up if {@code pitch} is negative. */
+    public Entry put(long face, int pixelSize, int glyphIndex, int renderMode, int strokeRadius, int strokeLineCap, int strokeLineJoin, int strokeMiterLimit,
+                     ByteBuffer pixels, int width, int rows, int pitch, int pixelMode, int left, int top, int advance) {
+        Key key = new Key().set(face, pixelSize, glyphIndex, renderMode, strokeRadius, strokeLineCap, strokeLineJoin, strokeMiterLimit);
+        Entry old = entries.remove(key);
+        if (old != null) old.slab.entries.removeValue(old, true);
+
+        int rowBytes = Math.abs(pitch);
+        int size = rowBytes * rows;
+        Slab slab = allocate(size);
+        int offset = slab.used;
+        slab.used += size;
+        ByteBuffer target = slab.buffer;
+        ByteBuffer source = pixels.duplicate();
+        for (int y = 0; y < rows; y++) {
+            int row = pitch < 0 ? rows - 1 - y : y;
+            source.limit(row * rowBytes + rowBytes).position(row * rowBytes);
+            target.position(offset + y * rowBytes);
+            target.put(source);
+        }
+        target.clear();
+        target.position(offset).limit(offset + size);
+        ByteBuffer view = target.slice();
+        target.clear();
+
+        Entry entry = new Entry(slab, view, width, rows, rowBytes, pixelMode, left, top, advance);
+        slab.entries.add(entry);
+        slab.lastUsed = ++clock;
+        entries.put(key, entry);
+        entry.key = key;
+        return entry;
+    }
+
+    private Slab allocate(int size) {
+        if (current != null && current.buffer.capacity() - current.used >= size) return current;
+        int capacity = Math.max(size, slabSize);
+        while (allocatedBytes + capacity > maxBytes && evict(capacity)) ;
+        Slab slab = null;
+        for (Slab s : slabs) {
+            if (s.entries.size == 0 && s.buffer.capacity() >= capacity) {
+                slab = s;
+                slab.used = 0;
+                break;
+            }
+        }
+        if (slab == null) {
+            slab = new Slab(BufferUtils.newUnsafeByteBuffer(capacity));
+            slabs.add(slab);
+            allocatedBytes += capacity;
+        }
+        if (capacity == slabSize) current = slab;
+        return slab;
+    }
+
+    private boolean evict(int capacity) {
+        Slab lru = null;
+        for (Slab slab : slabs) {
+            if (lru == null || slab.lastUsed < lru.lastUsed) lru = slab;
+        }
+        if (lru == null) return false;
+        for (Entry entry : lru.entries) {
+            entries.remove(entry.key);
+            entry.slab = null;
+        }
+        lru.entries.clear();
+        lru.used = 0;
+        if (lru == current) current = null;
+        if (lru.buffer.capacity() >= capacity && lru.buffer.capacity() <= Math.max(capacity, slabSize)) return false;
+        slabs.removeValue(lru, true);
+        allocatedBytes -= lru.buffer.capacity();
+        BufferUtils.disposeUnsafeByteBuffer(lru.buffer);
+        return true;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Bytes held by all slabs. */
+    public int getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void clear() {
+        for (Slab slab : slabs) {
+            for (Entry entry : slab.entries) {
+                entry.slab = null;
+            }
+            slab.entries.clear();
+            slab.used = 0;
+        }
+        entries.clear();
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+        for (Slab slab : slabs) {
+            BufferUtils.disposeUnsafeByteBuffer(slab.buffer);
+        }
+        slabs.clear();
+        current = null;
+        allocatedBytes = 0;
+    }
+
+    public static class Entry {
+        Key key;
+        Slab slab;
+        private final ByteBuffer pixels;
+        public final int width;
+        public final int rows;
+        public final int pitch;
+        public final int pixelMode;
+        public final int left;
+        public final int top;
+        public final int advance;
+
+        Entry(Slab slab, ByteBuffer pixels, int width, int rows, int pitch, int pixelMode, int left, int top, int advance) {
+            this.slab = slab;
+            this.pixels = pixels;
+            this.width = width;
+            this.rows = rows;
+            this.pitch = pitch;
+            this.pixelMode = pixelMode;
+            this.left = left;
+            this.top = top;
+            this.advance = advance;
+        }
+
+        public boolean isValid() {
+            return slab != null;
+        }
+
+        /** Top row first. Only valid while {@link #isValid()}. */
+        public ByteBuffer getPixels() {
+            return pixels;
+        }
+    }
+
+    private static class Slab {
+        final ByteBuffer buffer;
+        final Array<Entry> entries = new Array<Entry>(false, 64);
+        int used;
+        long lastUsed;
+
+        Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class Key {
+        long face;
+        int pixelSize, glyphIndex, renderMode;
+        int strokeRadius, strokeLineCap, strokeLineJoin, strokeMiterLimit;
+        int hash;
+
+        Key set(long face, int pixelSize, int glyphIndex, int renderMode, int strokeRadius, int strokeLineCap, int strokeLineJoin, int strokeMiterLimit) {
+            this.face = face;
+            this.pixelSize = pixelSize;
+            this.glyphIndex = glyphIndex;
+            this.renderMode = renderMode;
+            this.strokeRadius = strokeRadius;
+            this.strokeLineCap = strokeLineCap;
+            this.strokeLineJoin = strokeLineJoin;
+            this.strokeMiterLimit = strokeMiterLimit;
+            int h = (int) (face ^ face >>> 32);
+            h = 31 * h + pixelSize;
+            h = 31 * h + glyphIndex;
+            h = 31 * h + renderMode;
+            h = 31 * h + strokeRadius;
+            h = 31 * h + strokeLineCap;
+            h = 31 * h + strokeLineJoin;
+            h = 31 * h + strokeMiterLimit;
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return face == k.face && pixelSize == k.pixelSize && glyphIndex == k.glyphIndex && renderMode == k.renderMode
+                && strokeRadius == k.strokeRadius && strokeLineCap == k.strokeLineCap && strokeLineJoin == k.strokeLineJoin
+                && strokeMiterLimit == k.strokeMiterLimit;
+        }
+    }
+}
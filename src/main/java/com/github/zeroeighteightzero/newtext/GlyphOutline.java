@@ -0,0 +1,40 @@
+package com.github.zeroeighteightzero.newtext;
+
+/**
+ * Glyph outline in font units, y up. Shared by caches, so never modify it.
+ */
+public class GlyphOutline {
+    public final int glyphIndex;
+    public final byte[] commands;
+    public final float[] coords;
+    public final int advance;
+    /** Bounds including control points. */
+    public final float minX, minY, maxX, maxY;
+
+    public GlyphOutline(int glyphIndex, byte[] commands, float[] coords, int advance) {
+        this.glyphIndex = glyphIndex;
+        this.commands = commands;
+        this.coords = coords;
+        this.advance = advance;
+        float minX = 0, minY = 0, maxX = 0, maxY = 0;
+        for (int i = 0; i < coords.length; i += 2) {
+            float x = coords[i], y = coords[i + 1];
+            if (i == 0 || x < minX) minX = x;
+            if (i == 0 || y < minY) minY = y;
+            if (i == 0 || x > maxX) maxX = x;
+            if (i == 0 || y > maxY) maxY = y;
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public int getCommandCount() {
+        return commands.length;
+    }
+
+    public boolean isEmpty() {
+        return commands.length == 0;
+    }
+}
@@ -2,31 +2,162 @@ package com.github.zeroeighteightzero.newtext;
 
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.math.GridPoint2;
+import com.badlogic.gdx.utils.BufferUtils;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.Pool;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class Harfbuzz {
 
     // @off
 	/*JNI
+	    #include <stdlib.h>
 	    #include <hb.h>
 	    #include <hb-ft.h>
+	    #include <hb-ot.h>
 	    #include <ft2build.h>
 	    #include FT_FREETYPE_H
+
+	    #define GLYPH_STRIDE 7
+
+	    static_assert(sizeof(hb_glyph_info_t) == 20, "GlyphView.INFO_SIZE does not match hb_glyph_info_t");
+	    static_assert(sizeof(hb_glyph_position_t) == 20, "GlyphView.POSITION_SIZE does not match hb_glyph_position_t");
+
+	    static int copyGlyphs(hb_buffer_t* buffer, int* out, int capacity) {
+	        unsigned int glyph_count;
+	        hb_glyph_info_t* glyph_infos = hb_buffer_get_glyph_infos(buffer, &glyph_count);
+	        hb_glyph_position_t* glyph_positions = hb_buffer_get_glyph_positions(buffer, NULL);
+	        unsigned int n = glyph_count < (unsigned int) capacity ? glyph_count : (unsigned int) capacity;
+	        for (unsigned int i = 0; i < n; i++) {
+	            int* g = out + i * GLYPH_STRIDE;
+	            g[0] = glyph_infos[i].codepoint;
+	            g[1] = glyph_infos[i].cluster;
+	            g[2] = glyph_positions[i].x_advance;
+	            g[3] = glyph_positions[i].y_advance;
+	            g[4] = glyph_positions[i].x_offset;
+	            g[5] = glyph_positions[i].y_offset;
+	            g[6] = hb_glyph_info_get_glyph_flags(&glyph_infos[i]);
+	        }
+	        return glyph_count;
+	    }
+
+	    static void shiftClusters(hb_buffer_t* buffer, unsigned int start, int delta) {
+	        if (delta == 0) return;
+	        unsigned int glyph_count;
+	        hb_glyph_info_t* glyph_infos = hb_buffer_get_glyph_infos(buffer, &glyph_count);
+	        for (unsigned int i = start; i < glyph_count; i++) {
+	            glyph_infos[i].cluster += delta;
+	        }
+	    }
+
+	    static unsigned int readU16(const unsigned char* p) { return (p[0] << 8) | p[1]; }
+	    static unsigned int readU32(const unsigned char* p) { return (p[0] << 24) | (p[1] << 16) | (p[2] << 8) | p[3]; }
+
+	    // Whether a legacy kern table kerns the space glyph. Pair lists (format 0) are searched, any other subtable
+	    // format or a malformed table counts as kerning it.
+	    static bool kernHasGlyph(hb_face_t* face, hb_codepoint_t glyph) {
+	        hb_blob_t* blob = hb_face_reference_table(face, HB_TAG('k','e','r','n'));
+	        unsigned int length;
+	        const unsigned char* data = (const unsigned char*) hb_blob_get_data(blob, &length);
+	        bool found = false;
+	        if (length >= 4) {
+	            // OpenType tables start with a 16-bit version 0, Apple tables with a 32-bit version 1.
+	            bool apple = readU16(data) == 1;
+	            unsigned int header = apple ? 8 : 4, subHeader = apple ? 8 : 6;
+	            unsigned int tables = length < header ? 0 : apple ? readU32(data + 4) : readU16(data + 2);
+	            unsigned int offset = header;
+	            for (unsigned int t = 0; t < tables && !found; t++) {
+	                if (offset + subHeader + 8 > length) { found = true; break; }
+	                const unsigned char* sub = data + offset;
+	                // The format is the high byte of the OpenType coverage, the low byte of the Apple one.
+	                unsigned int format = apple ? sub[5] : sub[4];
+	                if (format != 0) { found = true; break; }
+	                unsigned int pairs = readU16(sub + subHeader);
+	                const unsigned char* pair = sub + subHeader + 8;
+	                if (offset + subHeader + 8 + pairs * 6 > length) { found = true; break; }
+	                for (unsigned int i = 0; i < pairs; i++, pair += 6) {
+	                    if (readU16(pair) == glyph || readU16(pair + 2) == glyph) { found = true; break; }
+	                }
+	                // Large OpenType subtables overflow their 16-bit length, so step over the pairs instead.
+	                offset += subHeader + 8 + pairs * 6;
+	            }
+	        }
+	        hb_blob_destroy(blob);
+	        return found;
+	    }
 	 */
 
-    public static class Buffer implements Disposable {
+    public static class Buffer implements Disposable, Pool.Poolable {
         private final long address;
+        /** Bumped whenever the native glyph arrays may move or be freed, see {@link GlyphView}. */
+        private int generation;
+        private char[] scratch;
+        private int[] ends;
 
         private Buffer(long address) {
             this.address = address;
         }
 
         public void addText(String text) {
+            generation++;
             bufferAddUTF8Text(address, text.getBytes(StandardCharsets.UTF_8));
         }
 
+        public void addText(char[] text, int offset, int length) {
+            addText(text, offset, length, 0, text.length);
+        }
+
+        /** Clusters are indices into {@code text}; the context range must enclose the item. */
+        public void addText(char[] text, int offset, int length, int contextStart, int contextEnd) {
+            checkItem(offset, length, contextStart, contextEnd, text.length);
+            generation++;
+            bufferAddUTF16Text(address, text, contextStart, contextEnd - contextStart, offset - contextStart, length);
+        }
+
+        public void addText(CharSequence text, int start, int end) {
+            addText(text, start, end, 0, text.length());
+        }
+
+        public void addText(CharSequence text, int start, int end, int contextStart, int contextEnd) {
+            checkItem(start, end - start, contextStart, contextEnd, text.length());
+            generation++;
+            if (text instanceof String) {
+                bufferAddUTF16String(address, text, contextStart, contextEnd - contextStart, start - contextStart, end - start);
+                return;
+            }
+            int from = Math.max(contextStart, start - CONTEXT_LENGTH);
+            int to = Math.min(contextEnd, end + CONTEXT_LENGTH);
+            if (scratch == null || scratch.length < to - from) {
+                scratch = new char[Math.max(to - from, 64)];
+            }
+            char[] chars = scratch;
+            for (int i = from; i < to; i++) {
+                chars[i - from] = text.charAt(i);
+            }
+            bufferAddUTF16Window(address, chars, to - from, start - from, end - start, from);
+        }
+
+        public void addText(int[] codepoints, int offset, int length) {
+            addText(codepoints, offset, length, 0, codepoints.length);
+        }
+
+        public void addText(int[] codepoints, int offset, int length, int contextStart, int contextEnd) {
+            checkItem(offset, length, contextStart, contextEnd, codepoints.length);
+            generation++;
+            bufferAddCodepoints(address, codepoints, contextStart, contextEnd - contextStart, offset - contextStart, length);
+        }
+
+        private static void checkItem(int offset, int length, int contextStart, int contextEnd, int textLength) {
+            if (contextStart < 0 || contextEnd > textLength || offset < contextStart || length < 0 || offset + length > contextEnd) {
+                throw new IndexOutOfBoundsException("item: " + offset + "+" + length + ", context: " + contextStart + ".." + contextEnd + ", length: " + textLength);
+            }
+        }
+
         public void setDirection(int direction) {
             bufferSetDirection(address, direction);
         }
@@ -43,10 +174,30 @@ public class Harfbuzz {
             bufferSetLanguage(address, languageFromString(language));
         }
 
+        public void setFlags(int flags) {
+            bufferSetFlags(address, flags);
+        }
+
+        public int getFlags() {
+            return bufferGetFlags(address);
+        }
+
         public void guessSegmentProperties() {
             bufferGuessSegmentProperties(address);
         }
 
+        public int getDirection() {
+            return bufferGetDirection(address);
+        }
+
+        public int getScript() {
+            return bufferGetScript(address);
+        }
+
+        public long getLanguage() {
+            return bufferGetLanguage(address);
+        }
+
         public GlyphInfo[] getGlyphInfos() {
             long[] glyphInfosAddr = bufferGetGlyphInfos(address);
             GlyphInfo[] glyphInfos = new GlyphInfo[glyphInfosAddr.length];
@@ -65,12 +216,175 @@ public class Harfbuzz {
             return glyphPositions;
         }
 
+        public int getLength() {
+            return bufferGetLength(address);
+        }
+
+        /**
+         * Copies every glyph into {@code out}, {@link #GLYPH_STRIDE} ints each. Returns the glyph count, which may exceed
+         * what fit.
+         */
+        public int getGlyphs(int[] out) {
+            return bufferGetGlyphsArray(address, out, out.length / GLYPH_STRIDE);
+        }
+
+        /** Same as {@link #getGlyphs(int[])}, from index 0 of {@code out}. */
+        public int getGlyphs(IntBuffer out) {
+            if (!out.isDirect()) {
+                throw new IllegalArgumentException("Buffer must be direct.");
+            }
+            return bufferGetGlyphsBuffer(address, out, out.capacity() / GLYPH_STRIDE);
+        }
+
+        public GlyphView getGlyphView() {
+            return new GlyphView().set(this);
+        }
+
+        /** Removes text, glyphs and segment properties but keeps flags and memory. */
+        public void clear() {
+            generation++;
+            bufferClearContents(address);
+        }
+
+        @Override
+        public void reset() {
+            generation++;
+            bufferReset(address);
+        }
+
+        public boolean preAllocate(int size) {
+            generation++;
+            return bufferPreAllocate(address, size);
+        }
+
         @Override
         public void dispose() {
+            generation++;
             bufferDestroy(address);
         }
     }
 
+    /**
+     * Cursor over the native glyph arrays of a {@link Buffer}, without a JNI call per glyph. Throws once the buffer has
+     * been modified; call {@link #set(Buffer)} again after reshaping.
+     */
+    public static class GlyphView {
+        /** Size in bytes of hb_glyph_info_t. */
+        public static final int INFO_SIZE = 20;
+        /** Size in bytes of hb_glyph_position_t. */
+        public static final int POSITION_SIZE = 20;
+
+        private static final int INFO_CODEPOINT = 0;
+        private static final int INFO_MASK = 4;
+        private static final int INFO_CLUSTER = 8;
+        private static final int POSITION_X_ADVANCE = 0;
+        private static final int POSITION_Y_ADVANCE = 4;
+        private static final int POSITION_X_OFFSET = 8;
+        private static final int POSITION_Y_OFFSET = 12;
+
+        private Buffer buffer;
+        private int generation;
+        private ByteBuffer infos;
+        private ByteBuffer positions;
+        private int length;
+        private int index;
+        private int info;
+        private int position;
+
+        public GlyphView set(Buffer buffer) {
+            this.buffer = buffer;
+            this.generation = buffer.generation;
+            ByteBuffer infos = bufferGetGlyphInfosView(buffer.address);
+            if (infos == null) {
+                this.infos = null;
+                this.positions = null;
+                this.length = 0;
+            } else {
+                this.infos = infos.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+                this.positions = bufferGetGlyphPositionsView(buffer.address).asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+                this.length = this.infos.capacity() / INFO_SIZE;
+            }
+            this.index = -1;
+            return this;
+        }
+
+        public boolean isValid() {
+            return buffer != null && buffer.generation == generation;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public GlyphView seek(int index) {
+            checkValid();
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+            }
+            this.index = index;
+            this.info = index * INFO_SIZE;
+            this.position = index * POSITION_SIZE;
+            return this;
+        }
+
+        /** Returns false once every glyph has been visited. */
+        public boolean next() {
+            checkValid();
+            if (index + 1 >= length) {
+                return false;
+            }
+            index++;
+            info = index * INFO_SIZE;
+            position = index * POSITION_SIZE;
+            return true;
+        }
+
+        public int getCodepoint() {
+            checkValid();
+            return infos.getInt(info + INFO_CODEPOINT);
+        }
+
+        public int getCluster() {
+            checkValid();
+            return infos.getInt(info + INFO_CLUSTER);
+        }
+
+        public int getFlags() {
+            checkValid();
+            return infos.getInt(info + INFO_MASK) & HB_GLYPH_FLAG_DEFINED;
+        }
+
+        public int getXAdvance() {
+            checkValid();
+            return positions.getInt(position + POSITION_X_ADVANCE);
+        }
+
+        public int getYAdvance() {
+            checkValid();
+            return positions.getInt(position + POSITION_Y_ADVANCE);
+        }
+
+        public int getXOffset() {
+            checkValid();
+            return positions.getInt(position + POSITION_X_OFFSET);
+        }
+
+        public int getYOffset() {
+            checkValid();
+            return positions.getInt(position + POSITION_Y_OFFSET);
+        }
+
+        private void checkValid() {
+            if (!isValid()) {
+                throw new IllegalStateException("Glyph view is no longer valid, the buffer was modified or disposed.");
+            }
+        }
+    }
+
     public static class GlyphInfo {
         private final long address;
 
@@ -80,6 +394,16 @@ public class Harfbuzz {
             this.address = address;
             this.codepoint = Harfbuzz.glyphInfoCodepoint(address);
         }
+
+        /** Only valid until the buffer is modified or disposed. */
+        public int getCluster() {
+            return Harfbuzz.glyphInfoCluster(address);
+        }
+
+        /** Only valid until the buffer is modified or disposed. */
+        public int getFlags() {
+            return Harfbuzz.glyphInfoFlags(address);
+        }
     }
 
     public static class GlyphPosition {
@@ -95,53 +419,92 @@ public class Harfbuzz {
         }
     }
 
+    /**
+     * Font data in direct memory, kept alive until the blob and every face and font created from it are disposed.
+     */
     public static class Blob implements Disposable {
         private final long address;
+        /** Keeps mapped or direct memory reachable while Harfbuzz points into it. */
+        private final ByteBuffer data;
+        private final boolean ownsData;
+        private final FreeType.Face owner;
+        private int references = 1;
 
-        private Blob(long address) {
+        private Blob(long address, ByteBuffer data, boolean ownsData, FreeType.Face owner) {
             this.address = address;
+            this.data = data;
+            this.ownsData = ownsData;
+            this.owner = owner;
         }
 
         public Face createFace(int index) {
-            return new Face(Harfbuzz.createFace(address, index));
+            retain();
+            return new Face(Harfbuzz.createFace(address, index), this);
         }
 
         public Face createFace() {
-            return new Face(Harfbuzz.createFace(address, 0));
+            return createFace(0);
         }
 
         @Override
         public void dispose() {
             blobDestroy(address);
+            release();
+        }
+
+        private void retain() {
+            references++;
+        }
+
+        private void release() {
+            if (--references > 0) return;
+            if (ownsData && BufferUtils.isUnsafeByteBuffer(data))
+                BufferUtils.disposeUnsafeByteBuffer(data);
+            if (owner != null)
+                owner.releaseData();
         }
     }
 
     public static class Face implements Disposable {
         private final long address;
+        private final Blob blob;
 
-        private Face(long address) {
+        private Face(long address, Blob blob) {
             this.address = address;
+            this.blob = blob;
         }
 
         public Font createFont() {
-            return new Font(Harfbuzz.createFont(address));
+            blob.retain();
+            return new Font(Harfbuzz.createFont(address), blob);
         }
 
         public int getUpem() {
             return faceGetUpem(address);
         }
 
+        /** Sets the bit of every mapped code point, leaving other bits alone. */
+        public void collectUnicodes(long[] bitsOut) {
+            if (bitsOut.length < 0x110000 / 64) throw new IllegalArgumentException("bitsOut must hold 0x110000 bits.");
+            faceCollectUnicodes(address, bitsOut);
+        }
+
         @Override
         public void dispose() {
             faceDestroy(address);
+            blob.release();
         }
     }
 
     public static class Font implements Disposable {
         private final long address;
+        /** Data the font's face reads from, null for fonts over a FreeType face. */
+        private final Blob blob;
+        private int spaceInLookups = -1;
 
-        private Font(long address) {
+        private Font(long address, Blob blob) {
             this.address = address;
+            this.blob = blob;
         }
 
         public void setScale(int xScale, int yScale) {
@@ -152,13 +515,232 @@ public class Harfbuzz {
             fontSetScale(address, fontSize * upem, fontSize * upem);
         }
 
+        public Font createSubFont() {
+            if (blob != null) blob.retain();
+            return new Font(fontCreateSubFont(address), blob);
+        }
+
+        public int getXScale() {
+            return (int) (fontGetScale(address) >> 32);
+        }
+
+        public int getYScale() {
+            return (int) fontGetScale(address);
+        }
+
+        /** Both scales in one call, x in the high and y in the low 32 bits. */
+        long getScale() {
+            return fontGetScale(address);
+        }
+
+        /** Whether any lookup involves the space glyph, so text can't be shaped word by word. */
+        public boolean isSpaceInLookups() {
+            if (spaceInLookups < 0) {
+                spaceInLookups = fontSpaceInLookups(address) ? 1 : 0;
+            }
+            return spaceInLookups == 1;
+        }
+
+        public int getGlyphCount() {
+            return fontGetGlyphCount(address);
+        }
+
+        public void getGlyphHAdvances(int first, int count, int[] out) {
+            if (out.length < count) throw new IllegalArgumentException("Output array too small.");
+            if (count > 0 && !fontGetGlyphHAdvances(address, first, count, out)) {
+                throw new RuntimeException("Failed to allocate glyph ids.");
+            }
+        }
+
+        /** Writes x bearing, y bearing, width and height per glyph. */
+        public void getGlyphExtents(int first, int count, int[] out) {
+            if (out.length < count * 4) throw new IllegalArgumentException("Output array too small.");
+            fontGetGlyphExtents(address, first, count, out);
+        }
+
+        public void getNominalGlyphs(int first, int count, int[] out) {
+            if (out.length < count) throw new IllegalArgumentException("Output array too small.");
+            if (count > 0 && !fontGetNominalGlyphs(address, first, count, out)) {
+                throw new RuntimeException("Failed to allocate code points.");
+            }
+        }
+
         public void shape(Buffer buffer) {
-            Harfbuzz.shape(address, buffer.address);
+            buffer.generation++;
+            Harfbuzz.shape(address, buffer.address, 0, 0);
+        }
+
+        public void shape(Buffer buffer, Features features) {
+            if (features == null) {
+                shape(buffer);
+                return;
+            }
+            buffer.generation++;
+            Harfbuzz.shape(address, buffer.address, features.address(), features.size());
+        }
+
+        /**
+         * Shapes every text separately in one native call. {@code offsetsOut[i]} receives the first glyph of text
+         * {@code i} and {@code offsetsOut[texts.length]} the total. Returns the glyph count, or the negated number of
+         * ints {@code glyphsOut} needs. The text is gathered in scratch arrays of {@code buffer}, so reuse it.
+         */
+        public int shapeAll(Buffer buffer, CharSequence[] texts, int direction, int script, long language, Features features,
+                            IntBuffer glyphsOut, int[] offsetsOut) {
+            if (!glyphsOut.isDirect()) {
+                throw new IllegalArgumentException("Buffer must be direct.");
+            }
+            if (offsetsOut.length < texts.length + 1) {
+                throw new IllegalArgumentException("offsetsOut must hold " + (texts.length + 1) + " offsets.");
+            }
+            if (buffer.ends == null || buffer.ends.length < texts.length) {
+                buffer.ends = new int[Math.max(texts.length, 16)];
+            }
+            int[] ends = buffer.ends;
+            int length = 0;
+            for (int i = 0; i < texts.length; i++) {
+                length += texts[i].length();
+                ends[i] = length;
+            }
+            if (buffer.scratch == null || buffer.scratch.length < length) {
+                buffer.scratch = new char[Math.max(length, 64)];
+            }
+            char[] chars = buffer.scratch;
+            for (int i = 0, start = 0; i < texts.length; i++) {
+                CharSequence text = texts[i];
+                if (text instanceof String) {
+                    ((String) text).getChars(0, text.length(), chars, start);
+                } else {
+                    for (int j = 0, n = text.length(); j < n; j++) chars[start + j] = text.charAt(j);
+                }
+                start = ends[i];
+            }
+            buffer.generation++;
+            int total = fontShapeAll(address, buffer.address, chars, ends, texts.length, direction, script, language,
+                features == null ? 0 : features.address(), features == null ? 0 : features.size(), glyphsOut,
+                glyphsOut.capacity() / GLYPH_STRIDE, offsetsOut);
+            return total * GLYPH_STRIDE > glyphsOut.capacity() ? -total * GLYPH_STRIDE : total;
+        }
+
+        /** Returns Harfbuzz's cached plan for the same arguments if there is one. Features may be null. */
+        public ShapePlan createShapePlan(int direction, int script, long language, Features features) {
+            if (!HB_DIRECTION_IS_VALID(direction)) {
+                throw new IllegalArgumentException("Invalid direction: " + direction);
+            }
+            long plan = shapePlanCreateCached(address, direction, script, language,
+                features == null ? 0 : features.address(), features == null ? 0 : features.size());
+            if (plan == 0) {
+                throw new RuntimeException("Failed to create Harfbuzz shape plan.");
+            }
+            return new ShapePlan(plan, direction, script, language, features);
         }
 
         @Override
         public void dispose() {
             fontDestroy(address);
+            if (blob != null) blob.release();
+        }
+    }
+
+    /**
+     * Native hb_feature_t array. Shape plans and incremental shapers hold a reference, so it is freed once they and the
+     * creator have disposed it.
+     */
+    public static class Features implements Disposable {
+        private final long address;
+        /** Tag, value, start and end of every feature. */
+        private final int[] values;
+        private final int hash;
+        private int references = 1;
+
+        private Features(long address, int[] values) {
+            this.address = address;
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        public int size() {
+            return values.length / 4;
+        }
+
+        public int getTag(int index) {
+            return values[index * 4];
+        }
+
+        public int getValue(int index) {
+            return values[index * 4 + 1];
+        }
+
+        public int getStart(int index) {
+            return values[index * 4 + 2];
+        }
+
+        public int getEnd(int index) {
+            return values[index * 4 + 3];
+        }
+
+        /** Not to be modified. */
+        int[] getValues() {
+            return values;
+        }
+
+        long address() {
+            if (references <= 0) throw new IllegalStateException("Features already disposed.");
+            return address;
+        }
+
+        void retain() {
+            address();
+            references++;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Features && Arrays.equals(values, ((Features) o).values);
+        }
+
+        @Override
+        public void dispose() {
+            if (references <= 0) throw new IllegalStateException("Features already disposed.");
+            if (--references == 0) featuresDestroy(address);
+        }
+    }
+
+    public static class ShapePlan implements Disposable {
+        private final long address;
+        private final int direction;
+        private final int script;
+        private final long language;
+        private final Features features;
+
+        private ShapePlan(long address, int direction, int script, long language, Features features) {
+            this.address = address;
+            this.direction = direction;
+            this.script = script;
+            this.language = language;
+            this.features = features;
+            if (features != null) features.retain();
+        }
+
+        /** Sets the segment properties of {@code buffer} to the plan's. Returns false if shaping failed. */
+        public boolean execute(Font font, Buffer buffer) {
+            buffer.generation++;
+            return shapePlanExecute(address, font.address, buffer.address, direction, script, language,
+                features == null ? 0 : features.address(), features == null ? 0 : features.size());
+        }
+
+        public Features getFeatures() {
+            return features;
+        }
+
+        @Override
+        public void dispose() {
+            shapePlanDestroy(address);
+            if (features != null) features.dispose();
         }
     }
 
@@ -166,10 +748,61 @@ public class Harfbuzz {
         hb_buffer_add_utf8((hb_buffer_t*) address, text, -1, 0, -1);
     */
 
+    private static native void bufferClearContents(long address); /*
+        hb_buffer_clear_contents((hb_buffer_t*) address);
+    */
+
+    private static native void bufferReset(long address); /*
+        hb_buffer_reset((hb_buffer_t*) address);
+    */
+
+    private static native boolean bufferPreAllocate(long address, int size); /*
+        return hb_buffer_pre_allocate((hb_buffer_t*) address, size);
+    */
+
+    private static native void bufferAddUTF16Text(long address, char[] text, int contextStart, int contextLength, int itemOffset, int itemLength); /*
+        hb_buffer_t* v = (hb_buffer_t*) address;
+        unsigned int start = hb_buffer_get_length(v);
+        hb_buffer_add_utf16(v, (const uint16_t*) text + contextStart, contextLength, itemOffset, itemLength);
+        shiftClusters(v, start, contextStart);
+    */
+
+    private static native void bufferAddUTF16Window(long address, char[] text, int textLength, int itemOffset, int itemLength, int clusterBase); /*
+        hb_buffer_t* v = (hb_buffer_t*) address;
+        unsigned int start = hb_buffer_get_length(v);
+        hb_buffer_add_utf16(v, (const uint16_t*) text, textLength, itemOffset, itemLength);
+        shiftClusters(v, start, clusterBase);
+    */
+
+    private static native void bufferAddUTF16String(long address, Object text, int contextStart, int contextLength, int itemOffset, int itemLength); /*
+        hb_buffer_t* v = (hb_buffer_t*) address;
+        unsigned int start = hb_buffer_get_length(v);
+        const jchar* chars = env->GetStringCritical((jstring) text, NULL);
+        if (chars == NULL) return;
+        hb_buffer_add_utf16(v, (const uint16_t*) chars + contextStart, contextLength, itemOffset, itemLength);
+        env->ReleaseStringCritical((jstring) text, chars);
+        shiftClusters(v, start, contextStart);
+    */
+
+    private static native void bufferAddCodepoints(long address, int[] text, int contextStart, int contextLength, int itemOffset, int itemLength); /*
+        hb_buffer_t* v = (hb_buffer_t*) address;
+        unsigned int start = hb_buffer_get_length(v);
+        hb_buffer_add_codepoints(v, (const hb_codepoint_t*) text + contextStart, contextLength, itemOffset, itemLength);
+        shiftClusters(v, start, contextStart);
+    */
+
     private static native void bufferDestroy(long address); /*
         hb_buffer_destroy((hb_buffer_t*) address);
     */
 
+    private static native void bufferSetFlags(long address, int flags); /*
+        hb_buffer_set_flags((hb_buffer_t*) address, (hb_buffer_flags_t) flags);
+    */
+
+    private static native int bufferGetFlags(long address); /*
+        return hb_buffer_get_flags((hb_buffer_t*) address);
+    */
+
     private static native void bufferSetDirection(long address, int direction); /*
         hb_buffer_set_direction((hb_buffer_t*) address, (hb_direction_t) direction);
     */
@@ -186,6 +819,18 @@ public class Harfbuzz {
         hb_buffer_guess_segment_properties((hb_buffer_t*) address);
     */
 
+    private static native int bufferGetDirection(long address); /*
+        return hb_buffer_get_direction((hb_buffer_t*) address);
+    */
+
+    private static native int bufferGetScript(long address); /*
+        return hb_buffer_get_script((hb_buffer_t*) address);
+    */
+
+    private static native long bufferGetLanguage(long address); /*
+        return (jlong) hb_buffer_get_language((hb_buffer_t*) address);
+    */
+
     private static native long[] bufferGetGlyphInfos(long address); /*
         hb_buffer_t* v = ((hb_buffer_t *) address);
         unsigned int glyph_count;
@@ -203,6 +848,14 @@ public class Harfbuzz {
         return ((hb_glyph_info_t*) address)->codepoint;
     */
 
+    private static native int glyphInfoCluster(long address); /*
+        return ((hb_glyph_info_t*) address)->cluster;
+    */
+
+    private static native int glyphInfoFlags(long address); /*
+        return hb_glyph_info_get_glyph_flags((hb_glyph_info_t*) address);
+    */
+
     private static native int glyphPositionXOffset(long address); /*
         return ((hb_glyph_position_t*) address)->x_offset;
     */
@@ -232,6 +885,32 @@ public class Harfbuzz {
         return arr;
     */
 
+    private static native int bufferGetLength(long address); /*
+        return hb_buffer_get_length((hb_buffer_t*) address);
+    */
+
+    private static native int bufferGetGlyphsArray(long address, int[] out, int capacity); /*
+        return copyGlyphs((hb_buffer_t*) address, out, capacity);
+    */
+
+    private static native int bufferGetGlyphsBuffer(long address, IntBuffer out, int capacity); /*
+        return copyGlyphs((hb_buffer_t*) address, out, capacity);
+    */
+
+    private static native ByteBuffer bufferGetGlyphInfosView(long address); /*
+        unsigned int glyph_count;
+        hb_glyph_info_t* glyph_infos = hb_buffer_get_glyph_infos((hb_buffer_t*) address, &glyph_count);
+        if (glyph_count == 0) return NULL;
+        return env->NewDirectByteBuffer((void*) glyph_infos, glyph_count * sizeof(hb_glyph_info_t));
+    */
+
+    private static native ByteBuffer bufferGetGlyphPositionsView(long address); /*
+        unsigned int glyph_count;
+        hb_glyph_position_t* glyph_positions = hb_buffer_get_glyph_positions((hb_buffer_t*) address, &glyph_count);
+        if (glyph_count == 0) return NULL;
+        return env->NewDirectByteBuffer((void*) glyph_positions, glyph_count * sizeof(hb_glyph_position_t));
+    */
+
     private static native void blobDestroy(long address); /*
         hb_blob_destroy((hb_blob_t*) address);
     */
@@ -244,6 +923,20 @@ public class Harfbuzz {
         return hb_face_get_upem((hb_face_t*) address);
     */
 
+    private static native void faceCollectUnicodes(long address, long[] bitsOut); /*
+        hb_set_t* set = hb_set_create();
+        hb_face_collect_unicodes((hb_face_t*) address, set);
+        hb_codepoint_t first = HB_SET_VALUE_INVALID, last = HB_SET_VALUE_INVALID;
+        while (hb_set_next_range(set, &first, &last)) {
+            if (first >= 0x110000) break;
+            if (last >= 0x110000) last = 0x10FFFF;
+            for (hb_codepoint_t c = first; c <= last; c++) {
+                bitsOut[c >> 6] |= 1LL << (c & 63);
+            }
+        }
+        hb_set_destroy(set);
+    */
+
     private static native void faceDestroy(long address); /*
         hb_face_destroy((hb_face_t*) address);
     */
@@ -252,16 +945,247 @@ public class Harfbuzz {
         return (jlong) hb_font_create((hb_face_t*) address);
     */
 
+    private static native int fontShapeAll(long font, long buffer, char[] text, int[] ends, int count, int direction, int script, long language,
+                                           long features, int numFeatures, IntBuffer glyphsOut, int capacity, int[] offsetsOut); /*
+        hb_buffer_t* b = (hb_buffer_t*) buffer;
+        int total = 0, start = 0;
+        for (int t = 0; t < count; t++) {
+            int length = ends[t] - start;
+            hb_buffer_clear_contents(b);
+            hb_buffer_add_utf16(b, (const uint16_t*) text + start, length, 0, length);
+            if (direction != HB_DIRECTION_INVALID) hb_buffer_set_direction(b, (hb_direction_t) direction);
+            if (script != HB_SCRIPT_INVALID) hb_buffer_set_script(b, (hb_script_t) script);
+            if (language) hb_buffer_set_language(b, (hb_language_t) language);
+            hb_buffer_guess_segment_properties(b);
+            hb_shape((hb_font_t*) font, b, (const hb_feature_t*) features, numFeatures);
+            offsetsOut[t] = total;
+            int written = total < capacity ? total : capacity;
+            total += copyGlyphs(b, glyphsOut + written * GLYPH_STRIDE, capacity - written);
+            start = ends[t];
+        }
+        offsetsOut[count] = total;
+        return total;
+    */
+
     private static native void fontSetScale(long address, int xScale, int yScale); /*
         hb_font_set_scale((hb_font_t*) address, xScale, yScale);
     */
 
+    private static native long fontCreateSubFont(long address); /*
+        return (jlong) hb_font_create_sub_font((hb_font_t*) address);
+    */
+
+    private static native long fontGetScale(long address); /*
+        int x_scale, y_scale;
+        hb_font_get_scale((hb_font_t*) address, &x_scale, &y_scale);
+        return ((jlong) x_scale << 32) | (jlong) (unsigned int) y_scale;
+    */
+
+    private static native int fontGetGlyphCount(long address); /*
+        return hb_face_get_glyph_count(hb_font_get_face((hb_font_t*) address));
+    */
+
+    private static native boolean fontGetGlyphHAdvances(long address, int first, int count, int[] out); /*
+        hb_codepoint_t* glyphs = (hb_codepoint_t*) malloc(count * sizeof(hb_codepoint_t));
+        if (!glyphs) return false;
+        for (int i = 0; i < count; i++) glyphs[i] = first + i;
+        hb_font_get_glyph_h_advances((hb_font_t*) address, count, glyphs, sizeof(hb_codepoint_t), (hb_position_t*) out, sizeof(int));
+        free(glyphs);
+        return true;
+    */
+
+    private static native void fontGetGlyphExtents(long address, int first, int count, int[] out); /*
+        hb_font_t* font = (hb_font_t*) address;
+        for (int i = 0; i < count; i++) {
+            hb_glyph_extents_t extents;
+            int* e = out + i * 4;
+            if (hb_font_get_glyph_extents(font, first + i, &extents)) {
+                e[0] = extents.x_bearing;
+                e[1] = extents.y_bearing;
+                e[2] = extents.width;
+                e[3] = extents.height;
+            } else {
+                e[0] = e[1] = e[2] = e[3] = 0;
+            }
+        }
+    */
+
+    private static native boolean fontGetNominalGlyphs(long address, int first, int count, int[] out); /*
+        hb_codepoint_t* unicodes = (hb_codepoint_t*) malloc(count * sizeof(hb_codepoint_t));
+        if (!unicodes) return false;
+        for (int i = 0; i < count; i++) unicodes[i] = first + i;
+        // hb_font_get_nominal_glyphs stops at the first missing code point, so continue after it.
+        unsigned int done = 0;
+        while (done < (unsigned int) count) {
+            done += hb_font_get_nominal_glyphs((hb_font_t*) address, count - done, unicodes + done, sizeof(hb_codepoint_t),
+                (hb_codepoint_t*) out + done, sizeof(int));
+            if (done < (unsigned int) count) out[done++] = 0;
+        }
+        free(unicodes);
+        return true;
+    */
+
+    private static native boolean fontSpaceInLookups(long address); /*
+        hb_font_t* font = (hb_font_t*) address;
+        hb_face_t* face = hb_font_get_face(font);
+        hb_codepoint_t space;
+        if (!hb_font_get_nominal_glyph(font, 0x20, &space)) return true;
+
+        bool involved = false;
+        hb_set_t* glyphs = hb_set_create();
+        hb_tag_t tables[2] = { HB_OT_TAG_GSUB, HB_OT_TAG_GPOS };
+        for (int t = 0; t < 2 && !involved; t++) {
+            unsigned int count = hb_ot_layout_table_get_lookup_count(face, tables[t]);
+            for (unsigned int i = 0; i < count && !involved; i++) {
+                hb_set_clear(glyphs);
+                hb_ot_layout_lookup_collect_glyphs(face, tables[t], i, glyphs, glyphs, glyphs, glyphs);
+                involved = hb_set_has(glyphs, space);
+            }
+        }
+        hb_set_destroy(glyphs);
+
+        if (!involved) involved = kernHasGlyph(face, space);
+
+        // AAT tables Harfbuzz may use instead of GSUB and GPOS, which we cannot inspect as easily.
+        hb_tag_t others[2] = { HB_TAG('m','o','r','x'), HB_TAG('k','e','r','x') };
+        for (int t = 0; t < 2 && !involved; t++) {
+            hb_blob_t* blob = hb_face_reference_table(face, others[t]);
+            involved = hb_blob_get_length(blob) > 0;
+            hb_blob_destroy(blob);
+        }
+        return involved;
+    */
+
     private static native void fontDestroy(long address); /*
         hb_font_destroy((hb_font_t*) address);
     */
 
-    private static native void shape(long font, long buffer); /*
-        hb_shape((hb_font_t*) font, (hb_buffer_t*) buffer, NULL, 0);
+    private static native void shape(long font, long buffer, long features, int numFeatures); /*
+        hb_shape((hb_font_t*) font, (hb_buffer_t*) buffer, (const hb_feature_t*) features, numFeatures);
+    */
+
+    private static native long featuresCreate(int count); /*
+        return (jlong) calloc(count > 0 ? count : 1, sizeof(hb_feature_t));
+    */
+
+    private static native boolean featuresParse(long address, int index, byte[] text, int length); /*
+        return hb_feature_from_string(text, length, ((hb_feature_t*) address) + index);
+    */
+
+    private static native void featuresGet(long address, int count, int[] out); /*
+        hb_feature_t* features = (hb_feature_t*) address;
+        for (int i = 0; i < count; i++) {
+            out[i * 4] = features[i].tag;
+            out[i * 4 + 1] = features[i].value;
+            out[i * 4 + 2] = features[i].start;
+            out[i * 4 + 3] = features[i].end;
+        }
+    */
+
+    private static native void featuresDestroy(long address); /*
+        free((void*) address);
+    */
+
+    private static native long shapePlanCreateCached(long font, int direction, int script, long language, long features, int numFeatures); /*
+        hb_font_t* f = (hb_font_t*) font;
+        hb_segment_properties_t props = HB_SEGMENT_PROPERTIES_DEFAULT;
+        props.direction = (hb_direction_t) direction;
+        props.script = (hb_script_t) script;
+        props.language = (hb_language_t) language;
+        unsigned int num_coords;
+        const int* coords = hb_font_get_var_coords_normalized(f, &num_coords);
+        return (jlong) hb_shape_plan_create_cached2(hb_font_get_face(f), &props, (const hb_feature_t*) features, numFeatures, coords, num_coords, NULL);
+    */
+
+    private static native boolean shapePlanExecute(long plan, long font, long buffer, int direction, int script, long language, long features, int numFeatures); /*
+        hb_segment_properties_t props = HB_SEGMENT_PROPERTIES_DEFAULT;
+        props.direction = (hb_direction_t) direction;
+        props.script = (hb_script_t) script;
+        props.language = (hb_language_t) language;
+        hb_buffer_set_segment_properties((hb_buffer_t*) buffer, &props);
+        return hb_shape_plan_execute((hb_shape_plan_t*) plan, (hb_font_t*) font, (hb_buffer_t*) buffer, (const hb_feature_t*) features, numFeatures);
+    */
+
+    private static native void shapePlanDestroy(long address); /*
+        hb_shape_plan_destroy((hb_shape_plan_t*) address);
+    */
+
+    public static native int getScript(int codepoint); /*
+        return (int) hb_unicode_script(hb_unicode_funcs_get_default(), (hb_codepoint_t) codepoint);
+    */
+
+    /** Writes the script of every UTF-16 code unit, both halves of a surrogate pair getting that of their code point. */
+    public static void getScripts(char[] text, int offset, int length, int[] scriptsOut) {
+        if (offset < 0 || length < 0 || offset + length > text.length || scriptsOut.length < length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        getScriptsJni(text, offset, length, scriptsOut);
+    }
+
+    private static native void getScriptsJni(char[] text, int offset, int length, int[] scriptsOut); /*
+        hb_unicode_funcs_t* funcs = hb_unicode_funcs_get_default();
+        const unsigned short* chars = (const unsigned short*) text + offset;
+        for (int i = 0; i < length; ) {
+            hb_codepoint_t c = chars[i];
+            int n = 1;
+            if (c >= 0xD800 && c < 0xDC00 && i + 1 < length && chars[i + 1] >= 0xDC00 && chars[i + 1] < 0xE000) {
+                c = 0x10000 + ((c - 0xD800) << 10) + (chars[i + 1] - 0xDC00);
+                n = 2;
+            }
+            int script = (int) hb_unicode_script(funcs, c);
+            for (int j = 0; j < n; j++) scriptsOut[i + j] = script;
+            i += n;
+        }
+    */
+
+    /**
+     * Shapes several items laid out as {@link Itemizer}'s {@code RUN_*} indices in one native call. Returns the total
+     * glyph count, which may exceed what fit in {@code glyphsOut}.
+     */
+    static int shapeRuns(Buffer buffer, Font[] fonts, char[] text, int length, int[] runs, int runStride, int runCount,
+                         long language, Features features, int[] glyphsOut, int[] glyphCountsOut) {
+        if (runStride < 5 || runCount < 0 || runs.length < runCount * runStride || glyphCountsOut.length < runCount
+            || length < 0 || length > text.length) {
+            throw new IllegalArgumentException("Invalid runs: " + runCount + " of stride " + runStride + " over " + length + " chars.");
+        }
+        for (int r = 0; r < runCount; r++) {
+            int start = runs[r * runStride], end = runs[r * runStride + 1], font = runs[r * runStride + 4];
+            if (start < 0 || end < start || end > length) {
+                throw new IndexOutOfBoundsException("Run " + r + ": " + start + "-" + end + ", length: " + length);
+            }
+            if (font < 0 || font >= fonts.length) {
+                throw new IllegalArgumentException("Run " + r + " uses font " + font + " of " + fonts.length + ".");
+            }
+        }
+        long[] addresses = new long[fonts.length];
+        for (int i = 0; i < fonts.length; i++) {
+            addresses[i] = fonts[i].address;
+        }
+        buffer.generation++;
+        return shapeRunsJni(buffer.address, addresses, text, length, runs, runStride, runCount, language,
+            features == null ? 0 : features.address(), features == null ? 0 : features.size(), glyphsOut,
+            glyphsOut.length / GLYPH_STRIDE, glyphCountsOut);
+    }
+
+    private static native int shapeRunsJni(long buffer, long[] fonts, char[] text, int length, int[] runs, int runStride, int runCount,
+                                           long language, long features, int numFeatures, int[] glyphsOut, int capacity, int[] glyphCountsOut); /*
+        hb_buffer_t* b = (hb_buffer_t*) buffer;
+        int total = 0;
+        for (int r = 0; r < runCount; r++) {
+            int* run = runs + r * runStride;
+            hb_buffer_clear_contents(b);
+            hb_buffer_add_utf16(b, (const uint16_t*) text, length, run[0], run[1] - run[0]);
+            hb_buffer_set_direction(b, (run[3] & 1) ? HB_DIRECTION_RTL : HB_DIRECTION_LTR);
+            hb_buffer_set_script(b, (hb_script_t) run[2]);
+            if (language) hb_buffer_set_language(b, (hb_language_t) language);
+            hb_buffer_guess_segment_properties(b);
+            hb_shape((hb_font_t*) (intptr_t) fonts[run[4]], b, (const hb_feature_t*) features, numFeatures);
+            int written = total < capacity ? total : capacity;
+            int count = copyGlyphs(b, glyphsOut + written * GLYPH_STRIDE, capacity - written);
+            glyphCountsOut[r] = count;
+            total += count;
+        }
+        return total;
     */
 
     public static long languageFromString(String text) {
@@ -280,30 +1204,93 @@ public class Harfbuzz {
         return new Buffer(address);
     }
 
+    public static Buffer createBuffer(int preAllocate) {
+        Buffer buffer = createBuffer();
+        if (!buffer.preAllocate(preAllocate)) {
+            buffer.dispose();
+            throw new RuntimeException("Failed to allocate Harfbuzz buffer.");
+        }
+        return buffer;
+    }
+
     private static native long createBufferJni(); /*
         hb_buffer_t *buf;
         buf = hb_buffer_create();
         return (jlong) buf;
     */
 
-    public static Blob createBlob(byte[] data) {
-        long address = createBlobJni(data, data.length, 1, 0, 0);
+    /** Parses features like {@code "kern"}, {@code "liga=0"} or {@code "aalt[3:5]=2"}. */
+    public static Features createFeatures(String... features) {
+        long address = featuresCreate(features.length);
         if (address == 0) {
-            throw new RuntimeException("Failed to create Harfbuzz buffer.");
+            throw new RuntimeException("Failed to allocate Harfbuzz features.");
         }
-        return new Blob(address);
+        for (int i = 0; i < features.length; i++) {
+            byte[] text = features[i].getBytes(StandardCharsets.UTF_8);
+            if (!featuresParse(address, i, text, text.length)) {
+                featuresDestroy(address);
+                throw new IllegalArgumentException("Invalid feature: " + features[i]);
+            }
+        }
+        int[] values = new int[features.length * 4];
+        featuresGet(address, features.length, values);
+        return new Features(address, values);
+    }
+
+    public static Blob createBlob(byte[] data) {
+        ByteBuffer buffer = BufferUtils.newUnsafeByteBuffer(data.length);
+        BufferUtils.copy(data, 0, buffer, data.length);
+        return createBlob(buffer, true, null);
     }
 
     public static Blob createBlob(FileHandle file) {
-        return createBlob(file.readBytes());
+        return createBlob(FreeType.readFontData(file), true, null);
+    }
+
+    /**
+     * Wraps a direct or mapped buffer without copying. The memory must outlive the blob and its faces and fonts.
+     */
+    public static Blob createBlob(ByteBuffer data) {
+        return createBlob(data, false, null);
+    }
+
+    /** Shares the font file bytes of a FreeType face, even past the face's disposal. */
+    public static Blob createBlob(FreeType.Face face) {
+        ByteBuffer data = face.retainData();
+        try {
+            return createBlob(data, false, face);
+        } catch (RuntimeException e) {
+            face.releaseData();
+            throw e;
+        }
+    }
+
+    public static Face createFace(FreeType.Face face) {
+        Blob blob = createBlob(face);
+        Face hbFace = blob.createFace(face.getFaceIndex());
+        blob.dispose();
+        return hbFace;
+    }
+
+    private static Blob createBlob(ByteBuffer data, boolean ownsData, FreeType.Face owner) {
+        if (!data.isDirect()) {
+            throw new IllegalArgumentException("Buffer must be direct.");
+        }
+        long address = createBlobJni(data, data.position(), data.remaining());
+        if (address == 0) {
+            if (ownsData && BufferUtils.isUnsafeByteBuffer(data))
+                BufferUtils.disposeUnsafeByteBuffer(data);
+            throw new RuntimeException("Failed to create Harfbuzz blob.");
+        }
+        return new Blob(address, data, ownsData, owner);
     }
 
-    private static native long createBlobJni(byte[] blob, int size, int mode, long userData, long destroyFunc); /*
-        return (jlong) hb_blob_create(blob, size, (hb_memory_mode_t) mode, (void*) (uintptr_t) userData, (hb_destroy_func_t) destroyFunc);
+    private static native long createBlobJni(ByteBuffer data, int offset, int size); /*
+        return (jlong) hb_blob_create((const char*) data + offset, size, HB_MEMORY_MODE_READONLY, NULL, NULL);
     */
 
     public static Font createFTFont(long ftFaceAddress) {
-        return new Font(createFTFontJni(ftFaceAddress));
+        return new Font(createFTFontJni(ftFaceAddress), null);
     }
 
     private static native long createFTFontJni(long ftFaceAddress); /*
@@ -311,12 +1298,55 @@ public class Harfbuzz {
     */
 
 
+    /** UTF-16 units of context copied on each side of an item; Harfbuzz looks at five codepoints. */
+    private static final int CONTEXT_LENGTH = 10;
+
+    /** Number of ints {@link Buffer#getGlyphs(int[])} writes per glyph. */
+    public static final int GLYPH_STRIDE = 7;
+
+    /** Index of each field within the {@link #GLYPH_STRIDE} ints of one glyph. */
+    public static final int
+        GLYPH_CODEPOINT = 0,
+        GLYPH_CLUSTER   = 1,
+        GLYPH_X_ADVANCE = 2,
+        GLYPH_Y_ADVANCE = 3,
+        GLYPH_X_OFFSET  = 4,
+        GLYPH_Y_OFFSET  = 5,
+        GLYPH_FLAGS     = 6;
+
+    /** Glyph flags, see {@link #GLYPH_FLAGS}. */
+    public static final int
+        HB_GLYPH_FLAG_UNSAFE_TO_BREAK  = 0x00000001,
+        HB_GLYPH_FLAG_UNSAFE_TO_CONCAT = 0x00000002,
+        HB_GLYPH_FLAG_SAFE_TO_INSERT_TATWEEL = 0x00000004,
+        HB_GLYPH_FLAG_DEFINED = 0x00000007;
+
+    /** Buffer flags, see {@link Buffer#setFlags(int)}. */
+    public static final int
+        HB_BUFFER_FLAG_DEFAULT = 0x00000000,
+        HB_BUFFER_FLAG_BOT = 0x00000001,
+        HB_BUFFER_FLAG_EOT = 0x00000002,
+        HB_BUFFER_FLAG_PRESERVE_DEFAULT_IGNORABLES = 0x00000004,
+        HB_BUFFER_FLAG_REMOVE_DEFAULT_IGNORABLES = 0x00000008,
+        HB_BUFFER_FLAG_DO_NOT_INSERT_DOTTED_CIRCLE = 0x00000010,
+        HB_BUFFER_FLAG_VERIFY = 0x00000020,
+        HB_BUFFER_FLAG_PRODUCE_UNSAFE_TO_CONCAT = 0x00000040,
+        HB_BUFFER_FLAG_PRODUCE_SAFE_TO_INSERT_TATWEEL = 0x00000080;
+
     // From LWJGL3
 
     public static int HB_TAG(int c1, int c2, int c3, int c4) {
         return ((c1 & 0xFF) << 24) | ((c2 & 0xFF)<< 16) | ((c3 & 0xFF) << 8) | (c4 & 0xFF);
     }
 
+    public static boolean HB_DIRECTION_IS_VALID(int direction) {
+        return (direction & ~3) == 4;
+    }
+
+    public static boolean HB_DIRECTION_IS_BACKWARD(int direction) {
+        return (direction & ~2) == 5;
+    }
+
     public static final int
         HB_DIRECTION_INVALID = 0,
         HB_DIRECTION_LTR     = 4,
@@ -0,0 +1,223 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Disposable;
+
+import static com.github.zeroeighteightzero.newtext.Harfbuzz.*;
+
+/**
+ * Keeps the shaping of an edited text up to date by reshaping only the range around each edit that is safe to concat.
+ * Segment properties are fixed by {@link #shape}. Not thread-safe.
+ */
+public class IncrementalShaper implements Disposable {
+    private static final int MAX_RETRIES = 4;
+
+    private final Font font;
+    private final Features features;
+    private final Buffer buffer = Harfbuzz.createBuffer();
+    private int direction, script;
+    private long language;
+    private int length;
+    private int[] glyphs = new int[64 * GLYPH_STRIDE];
+    private int glyphCount;
+    private int[] spliced = new int[64 * GLYPH_STRIDE];
+    private int[] middle = new int[64 * GLYPH_STRIDE];
+    private int lastReshapedLength;
+
+    public IncrementalShaper(Font font) {
+        this(font, null);
+    }
+
+    public IncrementalShaper(Font font, Features features) {
+        this.font = font;
+        this.features = features;
+        if (features != null) features.retain();
+    }
+
+    public void shape(CharSequence text) {
+        shape(text, HB_DIRECTION_INVALID, HB_SCRIPT_INVALID, 0);
+    }
+
+    /** Guessed segment properties are kept for later edits. */
+    public void shape(CharSequence text, int direction, int script, long language) {
+        Buffer buffer = this.buffer;
+        buffer.clear();
+        buffer.setFlags(HB_BUFFER_FLAG_PRODUCE_UNSAFE_TO_CONCAT | HB_BUFFER_FLAG_BOT | HB_BUFFER_FLAG_EOT);
+        buffer.addText(text, 0, text.length());
+        if (direction != HB_DIRECTION_INVALID) buffer.setDirection(direction);
+        if (script != HB_SCRIPT_INVALID) buffer.setScript(script);
+        if (language != 0) buffer.setLanguage(language);
+        buffer.guessSegmentProperties();
+        font.shape(buffer, features);
+        this.direction = buffer.getDirection();
+        this.script = buffer.getScript();
+        this.language = buffer.getLanguage();
+        this.length = text.length();
+        glyphs = readGlyphs(glyphs);
+        glyphCount = buffer.getLength();
+        lastReshapedLength = length;
+    }
+
+    /** {@code text} is the whole text after the edit. */
+    public void edit(CharSequence text, int start, int removed, int inserted) {
+        int oldLength = length;
+        if (start < 0 || removed < 0 || inserted < 0 || start + removed > oldLength || text.length() != oldLength - removed + inserted) {
+            throw new IllegalArgumentException("Edit " + start + "-" + removed + "+" + inserted + " doesn't match text of length "
+                + oldLength + " becoming " + text.length());
+        }
+        int delta = inserted - removed;
+        int from = safeBefore(start);
+        int to = safeAfter(start + removed);
+        for (int retry = 0; ; retry++) {
+            // One more safe cluster is reshaped past the edit, so the new flags show whether the text can still be
+            // split at its start. If it can, the text after it shapes as before and the kept glyphs stay valid.
+            int end = to < oldLength ? safeAfter(to + 1) : oldLength;
+            int count = reshape(text, from, end + delta);
+            // The new glyphs at both edges of the edit must be safe to concatenate as well.
+            boolean startSafe = from == 0 || !unsafeAt(middle, count, from);
+            boolean endSafe = to == oldLength || !unsafeAt(middle, count, to + delta);
+            if (startSafe && endSafe) {
+                splice(count, from, end, delta);
+                lastReshapedLength = end + delta - from;
+                break;
+            }
+            if (retry == MAX_RETRIES) {
+                shape(text, direction, script, language);
+                return;
+            }
+            if (!startSafe) from = safeBefore(from - 1);
+            if (!endSafe) to = end;
+        }
+        length = text.length();
+    }
+
+    private int safeBefore(int position) {
+        // A glyph only guards changes from the start of its own cluster, so text appended at the end needs a cluster
+        // before it.
+        if (position >= length) position = length - 1;
+        for (; position > 0; position--) {
+            if (isSafe(position)) return position;
+        }
+        return 0;
+    }
+
+    private int safeAfter(int position) {
+        for (; position < length; position++) {
+            if (isSafe(position)) return position;
+        }
+        return length;
+    }
+
+    private boolean isSafe(int position) {
+        // Glyphs of the cluster starting at position, empty if position is inside a cluster.
+        boolean backward = HB_DIRECTION_IS_BACKWARD(direction);
+        int first = firstGlyph(glyphs, glyphCount, backward ? position + 1 : position);
+        int last = firstGlyph(glyphs, glyphCount, backward ? position : position + 1);
+        if (first == last) return false;
+        for (int i = first; i < last; i++) {
+            if ((glyphs[i * GLYPH_STRIDE + GLYPH_FLAGS] & HB_GLYPH_FLAG_UNSAFE_TO_CONCAT) != 0) return false;
+        }
+        return true;
+    }
+
+    private boolean unsafeAt(int[] glyphs, int count, int position) {
+        for (int i = 0; i < count; i++) {
+            int g = i * GLYPH_STRIDE;
+            if (glyphs[g + GLYPH_CLUSTER] == position && (glyphs[g + GLYPH_FLAGS] & HB_GLYPH_FLAG_UNSAFE_TO_CONCAT) != 0) return true;
+        }
+        return false;
+    }
+
+    private int reshape(CharSequence text, int start, int end) {
+        Buffer buffer = this.buffer;
+        buffer.clear();
+        int flags = HB_BUFFER_FLAG_PRODUCE_UNSAFE_TO_CONCAT;
+        if (start == 0) flags |= HB_BUFFER_FLAG_BOT;
+        if (end == text.length()) flags |= HB_BUFFER_FLAG_EOT;
+        buffer.setFlags(flags);
+        buffer.addText(text, start, end, 0, text.length());
+        buffer.setDirection(direction);
+        buffer.setScript(script);
+        buffer.setLanguage(language);
+        font.shape(buffer, features);
+        middle = readGlyphs(middle);
+        return buffer.getLength();
+    }
+
+    private int[] readGlyphs(int[] out) {
+        int count = buffer.getGlyphs(out);
+        if (count * GLYPH_STRIDE > out.length) {
+            out = new int[count * GLYPH_STRIDE * 3 / 2];
+            buffer.getGlyphs(out);
+        }
+        return out;
+    }
+
+    private void splice(int count, int from, int to, int delta) {
+        boolean backward = HB_DIRECTION_IS_BACKWARD(direction);
+        // Glyphs before the range in visual order, the reshaped range, and the glyphs after it.
+        int headEnd = backward ? firstGlyph(glyphs, glyphCount, to) : firstGlyph(glyphs, glyphCount, from);
+        int tailStart = backward ? firstGlyph(glyphs, glyphCount, from) : firstGlyph(glyphs, glyphCount, to);
+        int total = headEnd + count + glyphCount - tailStart;
+        if (spliced.length < total * GLYPH_STRIDE) spliced = new int[total * GLYPH_STRIDE * 3 / 2];
+        int[] out = spliced;
+        System.arraycopy(glyphs, 0, out, 0, headEnd * GLYPH_STRIDE);
+        System.arraycopy(middle, 0, out, headEnd * GLYPH_STRIDE, count * GLYPH_STRIDE);
+        System.arraycopy(glyphs, tailStart * GLYPH_STRIDE, out, (headEnd + count) * GLYPH_STRIDE, (glyphCount - tailStart) * GLYPH_STRIDE);
+        if (delta != 0) {
+            // Clusters after the edit are the ones kept from the end of the text.
+            int shiftStart = backward ? 0 : headEnd + count;
+            int shiftEnd = backward ? headEnd : total;
+            for (int i = shiftStart; i < shiftEnd; i++) {
+                out[i * GLYPH_STRIDE + GLYPH_CLUSTER] += delta;
+            }
+        }
+        spliced = glyphs;
+        glyphs = out;
+        glyphCount = total;
+    }
+
+    private int firstGlyph(int[] glyphs, int count, int cluster) {
+        boolean backward = HB_DIRECTION_IS_BACKWARD(direction);
+        int low = 0, high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int c = glyphs[middle * GLYPH_STRIDE + GLYPH_CLUSTER];
+            if (backward ? c >= cluster : c < cluster) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /** Reused by later edits. */
+    public int[] getGlyphs() {
+        return glyphs;
+    }
+
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    public int getDirection() {
+        return direction;
+    }
+
+    public int getScript() {
+        return script;
+    }
+
+    public ShapedRun toRun() {
+        int[] copy = new int[glyphCount * GLYPH_STRIDE];
+        System.arraycopy(glyphs, 0, copy, 0, copy.length);
+        return new ShapedRun(copy, glyphCount, direction, script);
+    }
+
+    public int getLastReshapedLength() {
+        return lastReshapedLength;
+    }
+
+    @Override
+    public void dispose() {
+        buffer.dispose();
+        if (features != null) features.dispose();
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.text.Bidi;
+
+import static com.github.zeroeighteightzero.newtext.Harfbuzz.*;
+
+/**
+ * Splits text into runs of one script, bidi level and font, then shapes all runs in a single native call. Not
+ * thread-safe.
+ */
+public class Itemizer implements Disposable {
+    public static final int RUN_STRIDE = 5;
+
+    public static final int
+        RUN_START  = 0,
+        RUN_END    = 1,
+        RUN_SCRIPT = 2,
+        RUN_LEVEL  = 3,
+        RUN_FONT   = 4;
+
+    private static final int MAX_BRACKET_DEPTH = 64;
+
+    public interface FontSelector {
+        /** Returns -1 if no font has {@code codepoint}, to keep the font of the text around it. */
+        int select(int codepoint, int previousFont);
+    }
+
+    private final Buffer buffer = Harfbuzz.createBuffer();
+    private final int[] brackets = new int[MAX_BRACKET_DEPTH];
+    private final IntArray items = new IntArray();
+    private char[] chars = new char[64];
+    private int[] scripts = new int[64];
+    private int[] fonts = new int[64];
+
+    /** {@code selector} may be null to use font 0 everywhere. */
+    public Runs itemize(CharSequence text, int baseDirection, FontSelector selector) {
+        int length = text.length();
+        char[] chars = copy(text);
+        if (scripts.length < length) {
+            scripts = new int[Math.max(length, scripts.length * 2)];
+            fonts = new int[scripts.length];
+        }
+        resolveScripts(chars, length);
+        int[] scripts = this.scripts, fonts = this.fonts;
+        int firstFont = -1;
+        for (int i = 0, previous = -1; i < length; ) {
+            int codepoint = Character.codePointAt(chars, i, length);
+            int n = Character.charCount(codepoint);
+            int font = selector == null ? 0 : selector.select(codepoint, previous);
+            if (font < 0) font = previous;
+            else if (firstFont < 0) firstFont = font;
+            for (int j = 0; j < n; j++) fonts[i + j] = font;
+            previous = font;
+            i += n;
+        }
+        // Characters before the first one with a font take that font.
+        for (int i = 0; i < length && fonts[i] < 0; i++) {
+            fonts[i] = Math.max(firstFont, 0);
+        }
+
+        IntArray items = this.items;
+        items.clear();
+        if (length > 0) {
+            if (baseDirection != HB_DIRECTION_RTL && !Bidi.requiresBidi(chars, 0, length)) {
+                addRuns(0, length, 0);
+            } else {
+                int flags = baseDirection == HB_DIRECTION_RTL ? Bidi.DIRECTION_RIGHT_TO_LEFT
+                    : baseDirection == HB_DIRECTION_LTR ? Bidi.DIRECTION_LEFT_TO_RIGHT : Bidi.DIRECTION_DEFAULT_LEFT_TO_RIGHT;
+                Bidi bidi = new Bidi(chars, 0, null, 0, length, flags);
+                for (int i = 0, n = bidi.getRunCount(); i < n; i++) {
+                    addRuns(bidi.getRunStart(i), bidi.getRunLimit(i), bidi.getRunLevel(i));
+                }
+            }
+        }
+        return new Runs(items.toArray(), items.size / RUN_STRIDE, length);
+    }
+
+    private void addRuns(int start, int end, int level) {
+        int[] scripts = this.scripts, fonts = this.fonts;
+        int runStart = start;
+        for (int i = start + 1; i <= end; i++) {
+            if (i == end || scripts[i] != scripts[runStart] || fonts[i] != fonts[runStart]) {
+                items.add(runStart, i);
+                items.add(scripts[runStart], level);
+                items.add(fonts[runStart]);
+                runStart = i;
+            }
+        }
+    }
+
+    private void resolveScripts(char[] chars, int length) {
+        int[] scripts = this.scripts;
+        Harfbuzz.getScripts(chars, 0, length, scripts);
+        int current = HB_SCRIPT_COMMON, depth = 0, firstReal = -1;
+        for (int i = 0; i < length; i++) {
+            int script = scripts[i];
+            if (script != HB_SCRIPT_COMMON && script != HB_SCRIPT_INHERITED && script != HB_SCRIPT_UNKNOWN) {
+                current = script;
+                if (firstReal < 0) firstReal = i;
+                continue;
+            }
+            int type = Character.getType(chars[i]);
+            if (type == Character.START_PUNCTUATION) {
+                if (depth < MAX_BRACKET_DEPTH) brackets[depth] = current;
+                depth++;
+            } else if (type == Character.END_PUNCTUATION && depth > 0) {
+                depth--;
+                if (depth < MAX_BRACKET_DEPTH) {
+                    scripts[i] = brackets[depth];
+                    continue;
+                }
+            }
+            scripts[i] = current;
+        }
+        // Leading common characters take the first real script.
+        if (firstReal > 0) {
+            for (int i = 0; i < firstReal; i++) {
+                scripts[i] = scripts[firstReal];
+            }
+        }
+    }
+
+    public ShapedText shape(Font[] fonts, CharSequence text, int baseDirection, FontSelector selector, long language, Features features) {
+        return shape(fonts, text, itemize(text, baseDirection, selector), language, features);
+    }
+
+    public ShapedText shape(Font[] fonts, CharSequence text, Runs runs, long language, Features features) {
+        if (runs.length != text.length()) throw new IllegalArgumentException("Runs don't match the text.");
+        char[] chars = copy(text);
+        int[] counts = new int[runs.count];
+        int[] glyphs = new int[(runs.length + 8) * GLYPH_STRIDE];
+        int total = Harfbuzz.shapeRuns(buffer, fonts, chars, runs.length, runs.items, RUN_STRIDE, runs.count, language, features, glyphs, counts);
+        if (total * GLYPH_STRIDE > glyphs.length) {
+            glyphs = new int[total * GLYPH_STRIDE];
+            Harfbuzz.shapeRuns(buffer, fonts, chars, runs.length, runs.items, RUN_STRIDE, runs.count, language, features, glyphs, counts);
+        }
+        return new ShapedText(runs, glyphs, total, counts);
+    }
+
+    private char[] copy(CharSequence text) {
+        int length = text.length();
+        if (chars.length < length) chars = new char[Math.max(length, chars.length * 2)];
+        char[] chars = this.chars;
+        if (text instanceof String) {
+            ((String) text).getChars(0, length, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) chars[i] = text.charAt(i);
+        }
+        return chars;
+    }
+
+    @Override
+    public void dispose() {
+        buffer.dispose();
+    }
+
+    public static class Runs {
+        public final int[] items;
+        public final int count;
+        public final int length;
+
+        public Runs(int[] items, int count, int length) {
+            this.items = items;
+            this.count = count;
+            this.length = length;
+        }
+
+        public int getStart(int run) {
+            return items[run * RUN_STRIDE + RUN_START];
+        }
+
+        public int getEnd(int run) {
+            return items[run * RUN_STRIDE + RUN_END];
+        }
+
+        public int getScript(int run) {
+            return items[run * RUN_STRIDE + RUN_SCRIPT];
+        }
+
+        public int getLevel(int run) {
+            return items[run * RUN_STRIDE + RUN_LEVEL];
+        }
+
+        public int getFont(int run) {
+            return items[run * RUN_STRIDE + RUN_FONT];
+        }
+
+        public int getDirection(int run) {
+            return (getLevel(run) & 1) != 0 ? HB_DIRECTION_RTL : HB_DIRECTION_LTR;
+        }
+
+        public int[] getVisualOrder() {
+            byte[] levels = new byte[count];
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                levels[i] = (byte) getLevel(i);
+                order[i] = i;
+            }
+            Bidi.reorderVisually(levels, 0, order, 0, count);
+            int[] visual = new int[count];
+            for (int i = 0; i < count; i++) {
+                visual[i] = order[i];
+            }
+            return visual;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Unscaled outlines of one face, for every size. Not thread-safe; loading replaces the face's glyph slot.
+ */
+public class OutlineCache {
+    private final FreeType.Face face;
+    private final int unitsPerEM;
+    private final IntMap<GlyphOutline> outlines = new IntMap<GlyphOutline>();
+    private float[] coords = new float[256];
+    private byte[] commands = new byte[64];
+    private final int[] counts = new int[3];
+
+    public OutlineCache(FreeType.Face face) {
+        this.face = face;
+        this.unitsPerEM = face.getUnitsPerEM();
+    }
+
+    /** Returns null if the glyph has no outline, an empty outline for spaces. */
+    public GlyphOutline get(int glyphIndex) {
+        GlyphOutline outline = outlines.get(glyphIndex);
+        if (outline != null || outlines.containsKey(glyphIndex)) return outline;
+        int loadFlags = FreeType.FT_LOAD_NO_SCALE;
+        if (face.decomposeOutline(glyphIndex, loadFlags, coords, commands, counts)) {
+            if (counts[0] > commands.length || counts[1] > coords.length) {
+                commands = new byte[Math.max(counts[0], commands.length)];
+                coords = new float[Math.max(counts[1], coords.length)];
+                face.decomposeOutline(glyphIndex, loadFlags, coords, commands, counts);
+            }
+            byte[] glyphCommands = new byte[counts[0]];
+            float[] glyphCoords = new float[counts[1]];
+            System.arraycopy(commands, 0, glyphCommands, 0, counts[0]);
+            System.arraycopy(coords, 0, glyphCoords, 0, counts[1]);
+            outline = new GlyphOutline(glyphIndex, glyphCommands, glyphCoords, counts[2]);
+        }
+        outlines.put(glyphIndex, outline);
+        return outline;
+    }
+
+    public float getScale(float pixelSize) {
+        return pixelSize / unitsPerEM;
+    }
+
+    public FreeType.Face getFace() {
+        return face;
+    }
+
+    public int size() {
+        return outlines.size;
+    }
+
+    public void clear() {
+        outlines.clear();
+    }
+}
@@ -0,0 +1,253 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+import static com.github.zeroeighteightzero.newtext.FreeType.*;
+
+/**
+ * Rasterizes glyph sets on a {@link ForkJoinPool}. Each task borrows a worker with its own FreeType library and face
+ * over the shared font bytes.
+ */
+public class ParallelRasterizer implements Disposable {
+    /** Glyphs rendered by one task before it stops splitting. */
+    private static final int CHUNK_SIZE = 64;
+
+    private final ByteBuffer fontData;
+    private final int faceIndex;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final Array<Worker> workers = new Array<Worker>();
+    private final ConcurrentLinkedQueue<Worker> idle = new ConcurrentLinkedQueue<Worker>();
+    /** One permit per worker that may exist, so at most the pool's parallelism. */
+    private final Semaphore permits;
+    private final ForkJoinPool.ManagedBlocker permitBlocker = new ForkJoinPool.ManagedBlocker() {
+        @Override
+        public boolean block() throws InterruptedException {
+            permits.acquire();
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return false;
+        }
+    };
+
+    /** {@code fontData} must stay alive until this is disposed. */
+    public ParallelRasterizer(ByteBuffer fontData, int faceIndex, int parallelism) {
+        this(fontData, faceIndex, new ForkJoinPool(parallelism), true);
+    }
+
+    public ParallelRasterizer(ByteBuffer fontData, int faceIndex) {
+        this(fontData, faceIndex, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** The pool is not shut down by {@link #dispose()}. */
+    public ParallelRasterizer(ByteBuffer fontData, int faceIndex, ForkJoinPool pool) {
+        this(fontData, faceIndex, pool, false);
+    }
+
+    private ParallelRasterizer(ByteBuffer fontData, int faceIndex, ForkJoinPool pool, boolean ownsPool) {
+        if (!fontData.isDirect()) throw new GdxRuntimeException("Font data must be direct");
+        this.fontData = fontData;
+        this.faceIndex = faceIndex;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.permits = new Semaphore(pool.getParallelism());
+    }
+
+    private Worker acquire() {
+        if (!permits.tryAcquire()) {
+            // Lets the pool add a thread while this one waits for a worker.
+            try {
+                ForkJoinPool.managedBlock(permitBlocker);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GdxRuntimeException(e);
+            }
+        }
+        Worker idle = this.idle.poll();
+        if (idle != null) return idle;
+        try {
+            Worker worker = new Worker(fontData, faceIndex);
+            synchronized (workers) {
+                workers.add(worker);
+            }
+            return worker;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(Worker worker) {
+        idle.add(worker);
+        permits.release();
+    }
+
+    /** Metrics are in input order, laid out like {@link FreeType.Face#renderGlyphs(int[], int, int, ByteBuffer, int[])}. */
+    public Result render(int[] glyphIds, int pixelSize, int loadFlags, int renderMode) {
+        Chunk[] chunks = pool.invoke(new RenderTask(glyphIds, 0, glyphIds.length, pixelSize, loadFlags, renderMode));
+        int size = 0;
+        for (Chunk chunk : chunks) size += chunk.pixels.capacity();
+        ByteBuffer pixels = BufferUtils.newUnsafeByteBuffer(Math.max(size, 1));
+        int[] metrics = new int[glyphIds.length * RENDER_STRIDE];
+        int offset = 0, index = 0;
+        for (Chunk chunk : chunks) {
+            pixels.put(chunk.pixels);
+            System.arraycopy(chunk.metrics, 0, metrics, index, chunk.metrics.length);
+            for (int i = index + RENDER_OFFSET, n = index + chunk.metrics.length; i < n; i += RENDER_STRIDE) {
+                metrics[i] += offset;
+            }
+            offset += chunk.pixels.capacity();
+            index += chunk.metrics.length;
+        }
+        pixels.clear();
+        return new Result(pixels, metrics);
+    }
+
+    @Override
+    public void dispose() {
+        if (ownsPool) pool.shutdown();
+        synchronized (workers) {
+            for (Worker worker : workers) {
+                worker.dispose();
+            }
+            workers.clear();
+            idle.clear();
+        }
+    }
+
+    public static class Result implements Disposable {
+        public final ByteBuffer pixels;
+        public final int[] metrics;
+
+        Result(ByteBuffer pixels, int[] metrics) {
+            this.pixels = pixels;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void dispose() {
+            BufferUtils.disposeUnsafeByteBuffer(pixels);
+        }
+    }
+
+    private static class Chunk {
+        final ByteBuffer pixels;
+        final int[] metrics;
+
+        Chunk(ByteBuffer pixels, int[] metrics) {
+            this.pixels = pixels;
+            this.metrics = metrics;
+        }
+    }
+
+    private class RenderTask extends RecursiveTask<Chunk[]> {
+        private static final long serialVersionUID = 1L;
+        private final int[] glyphIds;
+        private final int offset, count, pixelSize, loadFlags, renderMode;
+
+        RenderTask(int[] glyphIds, int offset, int count, int pixelSize, int loadFlags, int renderMode) {
+            this.glyphIds = glyphIds;
+            this.offset = offset;
+            this.count = count;
+            this.pixelSize = pixelSize;
+            this.loadFlags = loadFlags;
+            this.renderMode = renderMode;
+        }
+
+        @Override
+        protected Chunk[] compute() {
+            if (count <= CHUNK_SIZE) {
+                Worker worker = acquire();
+                try {
+                    return new Chunk[] {worker.render(glyphIds, offset, count, pixelSize, loadFlags, renderMode)};
+                } finally {
+                    release(worker);
+                }
+            }
+            int half = count / 2;
+            RenderTask right = new RenderTask(glyphIds, offset + half, count - half, pixelSize, loadFlags, renderMode);
+            right.fork();
+            Chunk[] a = new RenderTask(glyphIds, offset, half, pixelSize, loadFlags, renderMode).compute();
+            Chunk[] b = right.join();
+            Chunk[] chunks = new Chunk[a.length + b.length];
+            System.arraycopy(a, 0, chunks, 0, a.length);
+            System.arraycopy(b, 0, chunks, a.length, b.length);
+            return chunks;
+        }
+    }
+
+    private static class Worker implements Disposable {
+        private final Library library;
+        private final Face face;
+        private ByteBuffer scratch;
+        private int pixelSize;
+
+        Worker(ByteBuffer fontData, int faceIndex) {
+            library = FreeType.initFreeType();
+            try {
+                face = library.newMemoryFace(fontData, faceIndex, false);
+            } catch (RuntimeException e) {
+                library.dispose();
+                throw e;
+            }
+        }
+
+        Chunk render(int[] glyphIds, int offset, int count, int pixelSize, int loadFlags, int renderMode) {
+            if (this.pixelSize != pixelSize) {
+                if (!face.setPixelSizes(0, pixelSize)) throw new GdxRuntimeException("Couldn't set pixel size " + pixelSize);
+                this.pixelSize = pixelSize;
+            }
+            if (scratch == null) scratch = BufferUtils.newUnsafeByteBuffer(Math.max(pixelSize * pixelSize * CHUNK_SIZE, 4096));
+            int[] metrics = new int[count * RENDER_STRIDE];
+            int[] part = metrics;
+            scratch.clear();
+            int done = 0;
+            while (done < count) {
+                // Resumed calls write their metrics from index 0, so they go through a second array.
+                if (done > 0 && part == metrics) part = new int[count * RENDER_STRIDE];
+                int rendered = face.renderGlyphs(glyphIds, offset + done, count - done, loadFlags, renderMode, scratch, part);
+                if (rendered < 0) {
+                    grow(scratch.position() - rendered);
+                    continue;
+                }
+                if (part != metrics) System.arraycopy(part, 0, metrics, done * RENDER_STRIDE, rendered * RENDER_STRIDE);
+                done += rendered;
+                if (done < count) grow(scratch.capacity() * 2);
+            }
+            scratch.flip();
+            ByteBuffer pixels = BufferUtils.newByteBuffer(scratch.remaining());
+            pixels.put(scratch);
+            pixels.clear();
+            return new Chunk(pixels, metrics);
+        }
+
+        private void grow(int capacity) {
+            ByteBuffer larger = BufferUtils.newUnsafeByteBuffer(Math.max(capacity, scratch.capacity() * 2));
+            int used = scratch.position();
+            scratch.flip();
+            larger.put(scratch);
+            larger.position(used);
+            BufferUtils.disposeUnsafeByteBuffer(scratch);
+            scratch = larger;
+        }
+
+        @Override
+        public void dispose() {
+            face.dispose();
+            library.dispose();
+            if (scratch != null) BufferUtils.disposeUnsafeByteBuffer(scratch);
+        }
+    }
+}
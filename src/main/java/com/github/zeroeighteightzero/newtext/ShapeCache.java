@@ -0,0 +1,169 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of shaped runs. Call {@link #invalidate(Harfbuzz.Font)} before disposing a font. Not thread-safe.
+ */
+public class ShapeCache implements Disposable {
+    private final int maxEntries;
+    private final LinkedHashMap<Key, ShapedRun> runs;
+    private final Key probe = new Key();
+    private Harfbuzz.Buffer buffer;
+    private long hits;
+    private long misses;
+
+    public ShapeCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.runs = new LinkedHashMap<Key, ShapedRun>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ShapedRun> eldest) {
+                return size() > ShapeCache.this.maxEntries;
+            }
+        };
+    }
+
+    public ShapedRun shape(Harfbuzz.Font font, CharSequence text) {
+        return shape(font, text, Harfbuzz.HB_DIRECTION_INVALID, Harfbuzz.HB_SCRIPT_INVALID, 0);
+    }
+
+    public ShapedRun shape(Harfbuzz.Font font, CharSequence text, int direction, int script, long language) {
+        return shape(font, text, direction, script, language, null);
+    }
+
+    /** Invalid segment properties (or language 0) are guessed; features may be null. */
+    public ShapedRun shape(Harfbuzz.Font font, CharSequence text, int direction, int script, long language, Harfbuzz.Features features) {
+        int[] featureValues = features == null ? null : features.getValues();
+        Key probe = this.probe.set(font, scaleOf(font), direction, script, language, featureValues, text);
+        ShapedRun run = runs.get(probe);
+        probe.font = null;
+        probe.features = null;
+        probe.text = null;
+        if (run != null) {
+            hits++;
+            return run;
+        }
+        misses++;
+        String string = text.toString();
+        Key key = new Key().set(font, probe.scale, direction, script, language, featureValues, string);
+        run = shapeUncached(font, string, direction, script, language, features);
+        runs.put(key, run);
+        return run;
+    }
+
+    long scaleOf(Harfbuzz.Font font) {
+        return font.getScale();
+    }
+
+    ShapedRun shapeUncached(Harfbuzz.Font font, String text, int direction, int script, long language, Harfbuzz.Features features) {
+        if (buffer == null) {
+            buffer = Harfbuzz.createBuffer();
+        }
+        buffer.clear();
+        buffer.addText(text, 0, text.length());
+        if (direction != Harfbuzz.HB_DIRECTION_INVALID) buffer.setDirection(direction);
+        if (script != Harfbuzz.HB_SCRIPT_INVALID) buffer.setScript(script);
+        if (language != 0) buffer.setLanguage(language);
+        buffer.guessSegmentProperties();
+        font.shape(buffer, features);
+        return ShapedRun.of(buffer);
+    }
+
+    public void invalidate(Harfbuzz.Font font) {
+        Iterator<Key> keys = runs.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().font == font) {
+                keys.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        runs.clear();
+    }
+
+    public int size() {
+        return runs.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public void dispose() {
+        runs.clear();
+        if (buffer != null) {
+            buffer.dispose();
+            buffer = null;
+        }
+    }
+
+    private static final class Key {
+        Harfbuzz.Font font;
+        long scale;
+        int direction;
+        int script;
+        long language;
+        /** Feature values, so keys outlive the native array. */
+        int[] features;
+        CharSequence text;
+        int hash;
+
+        Key set(Harfbuzz.Font font, long scale, int direction, int script, long language, int[] features, CharSequence text) {
+            this.font = font;
+            this.scale = scale;
+            this.direction = direction;
+            this.script = script;
+            this.language = language;
+            this.features = features;
+            this.text = text;
+            int h = System.identityHashCode(font);
+            h = 31 * h + (int) (scale ^ scale >>> 32);
+            h = 31 * h + direction;
+            h = 31 * h + script;
+            h = 31 * h + (int) (language ^ language >>> 32);
+            h = 31 * h + Arrays.hashCode(features);
+            for (int i = 0, n = text.length(); i < n; i++) {
+                h = 31 * h + text.charAt(i);
+            }
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            if (hash != other.hash || font != other.font || scale != other.scale || direction != other.direction
+                || script != other.script || language != other.language) return false;
+            if (!Arrays.equals(features, other.features)) return false;
+            CharSequence a = text, b = other.text;
+            int n = a.length();
+            if (n != b.length()) return false;
+            for (int i = 0; i < n; i++) {
+                if (a.charAt(i) != b.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+}
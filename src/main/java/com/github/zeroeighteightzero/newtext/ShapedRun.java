@@ -0,0 +1,63 @@
+package com.github.zeroeighteightzero.newtext;
+
+import static com.github.zeroeighteightzero.newtext.Harfbuzz.*;
+
+/**
+ * Copy of a shaping result, {@link Harfbuzz#GLYPH_STRIDE} ints per glyph. Shared by caches, so never modify it.
+ */
+public class ShapedRun {
+    public final int[] glyphs;
+    public final int glyphCount;
+    public final int direction;
+    public final int script;
+    public final int xAdvance;
+    public final int yAdvance;
+
+    public ShapedRun(int[] glyphs, int glyphCount, int direction, int script) {
+        this.glyphs = glyphs;
+        this.glyphCount = glyphCount;
+        this.direction = direction;
+        this.script = script;
+        int x = 0, y = 0;
+        for (int i = 0; i < glyphCount; i++) {
+            x += glyphs[i * GLYPH_STRIDE + GLYPH_X_ADVANCE];
+            y += glyphs[i * GLYPH_STRIDE + GLYPH_Y_ADVANCE];
+        }
+        this.xAdvance = x;
+        this.yAdvance = y;
+    }
+
+    public static ShapedRun of(Buffer buffer) {
+        int[] glyphs = new int[buffer.getLength() * GLYPH_STRIDE];
+        int glyphCount = buffer.getGlyphs(glyphs);
+        return new ShapedRun(glyphs, glyphCount, buffer.getDirection(), buffer.getScript());
+    }
+
+    public int getCodepoint(int index) {
+        return glyphs[index * GLYPH_STRIDE + GLYPH_CODEPOINT];
+    }
+
+    public int getCluster(int index) {
+        return glyphs[index * GLYPH_STRIDE + GLYPH_CLUSTER];
+    }
+
+    public int getXAdvance(int index) {
+        return glyphs[index * GLYPH_STRIDE + GLYPH_X_ADVANCE];
+    }
+
+    public int getYAdvance(int index) {
+        return glyphs[index * GLYPH_STRIDE + GLYPH_Y_ADVANCE];
+    }
+
+    public int getXOffset(int index) {
+        return glyphs[index * GLYPH_STRIDE + GLYPH_X_OFFSET];
+    }
+
+    public int getYOffset(int index) {
+        return glyphs[index * GLYPH_STRIDE + GLYPH_Y_OFFSET];
+    }
+
+    public int getFlags(int index) {
+        return glyphs[index * GLYPH_STRIDE + GLYPH_FLAGS];
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.zeroeighteightzero.newtext;
+
+import static com.github.zeroeighteightzero.newtext.Harfbuzz.*;
+
+/**
+ * Glyphs of all runs of an itemized text, run after run in logical order.
+ */
+public class ShapedText {
+    public final Itemizer.Runs runs;
+    public final int[] glyphs;
+    public final int glyphCount;
+    private final int[] runGlyphCounts;
+    private final int[] runGlyphStarts;
+
+    public ShapedText(Itemizer.Runs runs, int[] glyphs, int glyphCount, int[] runGlyphCounts) {
+        this.runs = runs;
+        this.glyphs = glyphs;
+        this.glyphCount = glyphCount;
+        this.runGlyphCounts = runGlyphCounts;
+        this.runGlyphStarts = new int[runGlyphCounts.length];
+        for (int i = 0, start = 0; i < runGlyphCounts.length; i++) {
+            runGlyphStarts[i] = start;
+            start += runGlyphCounts[i];
+        }
+    }
+
+    public int getRunCount() {
+        return runs.count;
+    }
+
+    public int getGlyphStart(int run) {
+        return runGlyphStarts[run];
+    }
+
+    public int getGlyphCount(int run) {
+        return runGlyphCounts[run];
+    }
+
+    public int getXAdvance(int run) {
+        int advance = 0;
+        for (int i = runGlyphStarts[run], end = i + runGlyphCounts[run]; i < end; i++) {
+            advance += glyphs[i * GLYPH_STRIDE + GLYPH_X_ADVANCE];
+        }
+        return advance;
+    }
+
+    public ShapedRun getRun(int run) {
+        int[] copy = new int[runGlyphCounts[run] * GLYPH_STRIDE];
+        System.arraycopy(glyphs, runGlyphStarts[run] * GLYPH_STRIDE, copy, 0, copy.length);
+        return new ShapedRun(copy, runGlyphCounts[run], runs.getDirection(run), runs.getScript(run));
+    }
+}
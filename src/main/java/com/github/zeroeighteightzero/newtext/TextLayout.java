@@ -0,0 +1,319 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.text.BreakIterator;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static com.github.zeroeighteightzero.newtext.Harfbuzz.*;
+
+/**
+ * Breaks a paragraph, shaped once as a single run, into lines. Lines are only reshaped when an edge is unsafe to break.
+ * Not thread-safe.
+ */
+public class TextLayout implements Disposable {
+    private static final long OVERFLOW_DEMERITS = 1L << 50;
+
+    public enum Breaker {
+        GREEDY,
+        /** Minimizes the squared space left on every line but the last. */
+        OPTIMAL
+    }
+
+    private Buffer buffer;
+    private Locale locale = Locale.getDefault();
+    private BreakIterator breakIterator = BreakIterator.getLineInstance(locale);
+    private int reshapes;
+
+    // State of the paragraph being laid out.
+    private Font font;
+    private Features features;
+    private CharSequence text;
+    private int length;
+    private int direction, script;
+    private long language;
+    private int[] glyphs;
+    private int glyphCount;
+    /** Advance of all clusters before each character, valid at cluster starts. */
+    private int[] prefix = new int[64];
+    private boolean[] clusterStart = new boolean[64];
+    private boolean[] unsafe = new boolean[64];
+    private final IntArray breaks = new IntArray();
+    private int lastStart = -1, lastEnd = -1;
+    private ShapedRun lastRun;
+
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+        this.breakIterator = BreakIterator.getLineInstance(locale);
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public Array<Line> layout(Font font, CharSequence text, int maxWidth) {
+        return layout(font, text, maxWidth, HB_DIRECTION_INVALID, HB_SCRIPT_INVALID, 0, null, Breaker.GREEDY);
+    }
+
+    /** Trailing white space doesn't count towards {@code maxWidth}. Invalid segment properties are guessed. */
+    public Array<Line> layout(Font font, CharSequence text, int maxWidth, int direction, int script, long language, Features features, Breaker breaker) {
+        this.font = font;
+        this.features = features;
+        this.text = text;
+        this.length = text.length();
+        this.reshapes = 0;
+        this.lastStart = this.lastEnd = -1;
+        this.lastRun = null;
+        try {
+            shapeParagraph(direction, script, language);
+            findBreaks();
+            Array<Line> lines = new Array<Line>();
+            if (length == 0) {
+                lines.add(new Line(0, 0, 0, new ShapedRun(new int[0], 0, this.direction, this.script), false));
+            } else if (breaker == Breaker.OPTIMAL) {
+                breakOptimal(maxWidth, lines);
+            } else {
+                breakGreedy(maxWidth, lines);
+            }
+            return lines;
+        } finally {
+            this.font = null;
+            this.features = null;
+            this.text = null;
+            this.lastRun = null;
+            this.glyphs = null;
+        }
+    }
+
+    public int getReshapeCount() {
+        return reshapes;
+    }
+
+    private void shapeParagraph(int direction, int script, long language) {
+        ShapedRun run = shape(0, length, direction, script, language);
+        this.direction = run.direction;
+        this.script = run.script;
+        this.language = language;
+        this.glyphs = run.glyphs;
+        this.glyphCount = run.glyphCount;
+
+        if (prefix.length < length + 1) {
+            int capacity = Math.max(length + 1, prefix.length * 2);
+            prefix = new int[capacity];
+            clusterStart = new boolean[capacity];
+            unsafe = new boolean[capacity];
+        }
+        int[] advances = prefix;
+        Arrays.fill(advances, 0, length + 1, 0);
+        Arrays.fill(clusterStart, 0, length + 1, false);
+        Arrays.fill(unsafe, 0, length + 1, false);
+        for (int i = 0; i < glyphCount; i++) {
+            int cluster = glyphs[i * GLYPH_STRIDE + GLYPH_CLUSTER];
+            advances[cluster] += advance(glyphs, i);
+            clusterStart[cluster] = true;
+            if ((glyphs[i * GLYPH_STRIDE + GLYPH_FLAGS] & HB_GLYPH_FLAG_UNSAFE_TO_BREAK) != 0) unsafe[cluster] = true;
+        }
+        // Turn the advance of every cluster into the advance of everything before it.
+        int sum = 0;
+        for (int i = 0; i <= length; i++) {
+            int advance = advances[i];
+            advances[i] = sum;
+            sum += advance;
+        }
+        clusterStart[length] = true;
+    }
+
+    private void findBreaks() {
+        IntArray breaks = this.breaks;
+        breaks.clear();
+        if (length == 0) return;
+        BreakIterator iterator = breakIterator;
+        iterator.setText(text.toString());
+        iterator.first();
+        for (int position = iterator.next(); position != BreakIterator.DONE; position = iterator.next()) {
+            if (clusterStart[position]) breaks.add(position);
+        }
+        if (breaks.size == 0 || breaks.peek() != length) breaks.add(length);
+    }
+
+    private void breakGreedy(int maxWidth, Array<Line> lines) {
+        int[] breaks = this.breaks.items;
+        int count = this.breaks.size;
+        int start = 0, first = 0;
+        while (start < length) {
+            int best = -1;
+            for (int k = first; k < count; k++) {
+                if (best >= 0 && estimateWidth(start, breaks[k]) > maxWidth) break;
+                best = k;
+                if (isMandatory(breaks[k])) break;
+            }
+            // Estimates are exact unless an edge is unsafe to break; step back while the reshaped line doesn't fit.
+            while (best > first && measure(start, breaks[best]) > maxWidth) best--;
+            int end = breaks[best];
+            lines.add(line(start, end));
+            start = end;
+            first = best + 1;
+        }
+    }
+
+    private void breakOptimal(int maxWidth, Array<Line> lines) {
+        int[] breaks = this.breaks.items;
+        int count = this.breaks.size;
+        // Node 0 is the paragraph start, node j > 0 the break at breaks[j - 1].
+        long[] demerits = new long[count + 1];
+        int[] previous = new int[count + 1];
+        for (int j = 1; j <= count; j++) {
+            int end = breaks[j - 1];
+            boolean last = j == count || isMandatory(end);
+            demerits[j] = Long.MAX_VALUE;
+            for (int i = j - 1; i >= 0; i--) {
+                // A line can't contain a forced break, and lines only get wider further back.
+                if (i < j - 1 && isMandatory(breaks[i])) break;
+                int start = i == 0 ? 0 : breaks[i - 1];
+                int width = estimateWidth(start, end);
+                if (width > maxWidth && i < j - 1) break;
+                if (demerits[i] == Long.MAX_VALUE) continue;
+                long slack = maxWidth - width;
+                long line = slack < 0 ? OVERFLOW_DEMERITS + slack * slack : last ? 0 : slack * slack;
+                if (demerits[i] + line < demerits[j]) {
+                    demerits[j] = demerits[i] + line;
+                    previous[j] = i;
+                }
+            }
+        }
+        IntArray ends = new IntArray();
+        for (int j = count; j > 0; j = previous[j]) {
+            ends.add(j);
+        }
+        int start = 0;
+        for (int i = ends.size - 1; i >= 0; i--) {
+            int end = breaks[ends.get(i) - 1];
+            lines.add(line(start, end));
+            start = end;
+        }
+    }
+
+    private boolean isMandatory(int position) {
+        if (position >= length) return true;
+        char c = text.charAt(position - 1);
+        if (c == '\r') return text.charAt(position) != '\n';
+        return c == '\n' || c == '\u000B' || c == '\f' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private boolean isSafe(int position) {
+        return position == 0 || position == length || (clusterStart[position] && !unsafe[position]);
+    }
+
+    private int trimEnd(int start, int end) {
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        return end;
+    }
+
+    private int estimateWidth(int start, int end) {
+        int trimmed = trimEnd(start, end);
+        while (!clusterStart[trimmed]) trimmed++;
+        return prefix[trimmed] - prefix[start];
+    }
+
+    private int measure(int start, int end) {
+        if (isSafe(start) && isSafe(end)) return estimateWidth(start, end);
+        ShapedRun run = reshape(start, end);
+        return width(run, trimEnd(start, end));
+    }
+
+    private Line line(int start, int end) {
+        if (isSafe(start) && isSafe(end)) {
+            return new Line(start, end, estimateWidth(start, end), slice(start, end), false);
+        }
+        ShapedRun run = reshape(start, end);
+        return new Line(start, end, width(run, trimEnd(start, end)), run, true);
+    }
+
+    private ShapedRun reshape(int start, int end) {
+        if (start == lastStart && end == lastEnd) return lastRun;
+        ShapedRun run = shape(start, end, direction, script, language);
+        reshapes++;
+        lastStart = start;
+        lastEnd = end;
+        return lastRun = run;
+    }
+
+    ShapedRun shape(int start, int end, int direction, int script, long language) {
+        if (buffer == null) {
+            buffer = Harfbuzz.createBuffer();
+        }
+        Buffer buffer = this.buffer;
+        buffer.clear();
+        buffer.addText(text, start, end, 0, length);
+        if (direction != HB_DIRECTION_INVALID) buffer.setDirection(direction);
+        if (script != HB_SCRIPT_INVALID) buffer.setScript(script);
+        if (language != 0) buffer.setLanguage(language);
+        buffer.guessSegmentProperties();
+        font.shape(buffer, features);
+        return ShapedRun.of(buffer);
+    }
+
+    private ShapedRun slice(int start, int end) {
+        boolean backward = HB_DIRECTION_IS_BACKWARD(direction);
+        // Clusters grow in glyph order, or shrink for backward directions.
+        int from = backward ? firstGlyph(end, true) : firstGlyph(start, false);
+        int to = backward ? firstGlyph(start, true) : firstGlyph(end, false);
+        int[] copy = new int[(to - from) * GLYPH_STRIDE];
+        System.arraycopy(glyphs, from * GLYPH_STRIDE, copy, 0, copy.length);
+        return new ShapedRun(copy, to - from, direction, script);
+    }
+
+    private int firstGlyph(int cluster, boolean backward) {
+        int low = 0, high = glyphCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int c = glyphs[middle * GLYPH_STRIDE + GLYPH_CLUSTER];
+            if (backward ? c >= cluster : c < cluster) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private int width(ShapedRun run, int trimmedEnd) {
+        int width = 0;
+        for (int i = 0; i < run.glyphCount; i++) {
+            if (run.glyphs[i * GLYPH_STRIDE + GLYPH_CLUSTER] < trimmedEnd) width += advance(run.glyphs, i);
+        }
+        return width;
+    }
+
+    private int advance(int[] glyphs, int index) {
+        // Vertical advances point down.
+        boolean vertical = (direction & ~1) == HB_DIRECTION_TTB;
+        return vertical ? -glyphs[index * GLYPH_STRIDE + GLYPH_Y_ADVANCE] : glyphs[index * GLYPH_STRIDE + GLYPH_X_ADVANCE];
+    }
+
+    @Override
+    public void dispose() {
+        if (buffer != null) {
+            buffer.dispose();
+            buffer = null;
+        }
+    }
+
+    public static class Line {
+        public final int start;
+        /** Includes trailing white space and the line break. */
+        public final int end;
+        /** Without trailing white space. */
+        public final int width;
+        public final ShapedRun run;
+        public final boolean reshaped;
+
+        Line(int start, int end, int width, ShapedRun run, boolean reshaped) {
+            this.start = start;
+            this.end = end;
+            this.width = width;
+            this.run = run;
+            this.reshaped = reshaped;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+
+import static com.github.zeroeighteightzero.newtext.Harfbuzz.*;
+
+/**
+ * Shapes text word by word, split at spaces, caching every word. Fonts whose lookups involve the space glyph are shaped
+ * as a whole run. Not thread-safe.
+ */
+public class WordShapeCache implements Disposable {
+    private final ShapeCache words;
+    private final Slice slice = new Slice();
+    private final IntArray glyphs = new IntArray();
+    private Buffer buffer;
+
+    public WordShapeCache(int maxWords) {
+        this.words = new ShapeCache(maxWords);
+    }
+
+    public ShapedRun shape(Font font, CharSequence text) {
+        return shape(font, text, HB_DIRECTION_INVALID, HB_SCRIPT_INVALID, 0);
+    }
+
+    public ShapedRun shape(Font font, CharSequence text, int direction, int script, long language) {
+        return shape(font, text, direction, script, language, null);
+    }
+
+    /**
+     * A missing direction or script is guessed from the first strong character, and the words share it. Only pass
+     * global features.
+     */
+    public ShapedRun shape(Font font, CharSequence text, int direction, int script, long language, Features features) {
+        if (font.isSpaceInLookups()) {
+            if (buffer == null) {
+                buffer = Harfbuzz.createBuffer();
+            }
+            Buffer buffer = this.buffer;
+            buffer.clear();
+            buffer.addText(text, 0, text.length());
+            if (direction != HB_DIRECTION_INVALID) buffer.setDirection(direction);
+            if (script != HB_SCRIPT_INVALID) buffer.setScript(script);
+            if (language != 0) buffer.setLanguage(language);
+            buffer.guessSegmentProperties();
+            font.shape(buffer, features);
+            return ShapedRun.of(buffer);
+        }
+        if (direction == HB_DIRECTION_INVALID || script == HB_SCRIPT_INVALID) {
+            int strong = firstStrong(text);
+            if (direction == HB_DIRECTION_INVALID) {
+                byte type = strong < 0 ? Character.DIRECTIONALITY_LEFT_TO_RIGHT : Character.getDirectionality(strong);
+                direction = type == Character.DIRECTIONALITY_LEFT_TO_RIGHT ? HB_DIRECTION_LTR : HB_DIRECTION_RTL;
+            }
+            if (script == HB_SCRIPT_INVALID && strong >= 0) script = Harfbuzz.getScript(strong);
+        }
+
+        IntArray glyphs = this.glyphs;
+        glyphs.clear();
+        boolean backward = HB_DIRECTION_IS_BACKWARD(direction);
+        int length = text.length();
+        int end = backward ? length : 0;
+        while (backward ? end > 0 : end < length) {
+            int start = end;
+            if (backward) {
+                boolean space = text.charAt(start - 1) == ' ';
+                do start--; while (!space && start > 0 && text.charAt(start - 1) != ' ');
+                appendWord(font, text, start, end, direction, script, language, features);
+                end = start;
+            } else {
+                boolean space = text.charAt(end) == ' ';
+                do end++; while (!space && end < length && text.charAt(end) != ' ');
+                appendWord(font, text, start, end, direction, script, language, features);
+            }
+        }
+        int[] copy = new int[glyphs.size];
+        System.arraycopy(glyphs.items, 0, copy, 0, glyphs.size);
+        return new ShapedRun(copy, glyphs.size / GLYPH_STRIDE, direction, script);
+    }
+
+    /** Returns the first code point with a strong bidi type, or -1. */
+    static int firstStrong(CharSequence text) {
+        for (int i = 0, n = text.length(); i < n; ) {
+            int codepoint = Character.codePointAt(text, i);
+            switch (Character.getDirectionality(codepoint)) {
+                case Character.DIRECTIONALITY_LEFT_TO_RIGHT:
+                case Character.DIRECTIONALITY_RIGHT_TO_LEFT:
+                case Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC:
+                    return codepoint;
+            }
+            i += Character.charCount(codepoint);
+        }
+        return -1;
+    }
+
+    private void appendWord(Font font, CharSequence text, int start, int end, int direction, int script, long language, Features features) {
+        ShapedRun word = words.shape(font, slice.set(text, start, end), direction, script, language, features);
+        slice.text = null;
+        int n = word.glyphCount * GLYPH_STRIDE;
+        int offset = glyphs.size;
+        int[] items = glyphs.ensureCapacity(n);
+        System.arraycopy(word.glyphs, 0, items, offset, n);
+        for (int i = offset + GLYPH_CLUSTER, last = offset + n; i < last; i += GLYPH_STRIDE) {
+            items[i] += start;
+        }
+        glyphs.size += n;
+    }
+
+    public void invalidate(Font font) {
+        words.invalidate(font);
+    }
+
+    public void clear() {
+        words.clear();
+    }
+
+    public long getHits() {
+        return words.getHits();
+    }
+
+    public long getMisses() {
+        return words.getMisses();
+    }
+
+    @Override
+    public void dispose() {
+        words.dispose();
+        if (buffer != null) {
+            buffer.dispose();
+            buffer = null;
+        }
+    }
+
+    private static final class Slice implements CharSequence {
+        CharSequence text;
+        int start;
+        int end;
+
+        Slice set(CharSequence text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            return text.subSequence(start, end).toString();
+        }
+    }
+}
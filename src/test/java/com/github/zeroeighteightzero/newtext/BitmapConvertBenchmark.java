@@ -0,0 +1,81 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Blending;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Times {@link FreeType.Bitmap#convert} against the previous getPixmap path (per-pixel Math.pow into RGBA8888, then
+ * drawPixmap into the requested format). Run with {@code main}, it is not part of the test suite.
+ */
+public class BitmapConvertBenchmark {
+    private static final int SIZE = 32, GLYPHS = 2000, ROUNDS = 10;
+    private static final float GAMMA = 1.8f;
+    private static final Color COLOR = new Color(0.2f, 0.4f, 0.8f, 1);
+
+    /** The getPixmap of the baseline, for GRAY bitmaps. */
+    static Pixmap oldPixmap(ByteBuffer src, int width, int rows, Format format, Color color, float gamma) {
+        Pixmap pixmap = new Pixmap(width, rows, Format.RGBA8888);
+        int rgba = Color.rgba8888(color);
+        byte[] srcRow = new byte[width];
+        int[] dstRow = new int[width];
+        IntBuffer dst = pixmap.getPixels().asIntBuffer();
+        int rgb = rgba & 0xffffff00;
+        int a = rgba & 0xff;
+        src.position(0);
+        for (int y = 0; y < rows; y++) {
+            src.get(srcRow);
+            for (int x = 0; x < width; x++) {
+                int alpha = srcRow[x] & 0xff;
+                if (alpha == 0)
+                    dstRow[x] = rgb;
+                else if (alpha == 255)
+                    dstRow[x] = rgb | a;
+                else
+                    dstRow[x] = rgb | (int)(a * (float)Math.pow(alpha / 255f, gamma));
+            }
+            dst.put(dstRow);
+        }
+        Pixmap converted = pixmap;
+        if (format != pixmap.getFormat()) {
+            converted = new Pixmap(width, rows, format);
+            converted.setBlending(Blending.None);
+            converted.drawPixmap(pixmap, 0, 0);
+            converted.setBlending(Blending.SourceOver);
+            pixmap.dispose();
+        }
+        return converted;
+    }
+
+    static Pixmap newPixmap(ByteBuffer src, int width, int rows, Format format, Color color, float gamma) {
+        Pixmap pixmap = new Pixmap(width, rows, format);
+        FreeType.Bitmap.convert(src, width, rows, width, FreeType.FT_PIXEL_MODE_GRAY, format, Color.rgba8888(color), gamma,
+            pixmap.getPixels());
+        return pixmap;
+    }
+
+    public static void main(String[] args) {
+        GdxNativesLoader.load();
+        ByteBuffer src = BufferUtils.newByteBuffer(SIZE * SIZE);
+        for (int i = 0; i < SIZE * SIZE; i++) src.put(i, (byte) (i * 37));
+        for (Format format : new Format[] {Format.RGBA4444, Format.RGB565, Format.LuminanceAlpha, Format.RGBA8888}) {
+            long oldTime = Long.MAX_VALUE, newTime = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < GLYPHS; i++) oldPixmap(src, SIZE, SIZE, format, COLOR, GAMMA).dispose();
+                oldTime = Math.min(oldTime, System.nanoTime() - start);
+                start = System.nanoTime();
+                for (int i = 0; i < GLYPHS; i++) newPixmap(src, SIZE, SIZE, format, COLOR, GAMMA).dispose();
+                newTime = Math.min(newTime, System.nanoTime() - start);
+            }
+            System.out.printf("%-15s old %7.2f us/glyph, new %7.2f us/glyph, %.1fx%n", format, oldTime / 1000.0 / GLYPHS,
+                newTime / 1000.0 / GLYPHS, (double) oldTime / newTime);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+
+public class BitmapConvertTest {
+    private static final int WIDTH = 5, ROWS = 3;
+    private static final int RGBA = 0x3366CCFF;
+
+    @BeforeClass
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    private static ByteBuffer grayBitmap(int pitch) {
+        ByteBuffer src = BufferUtils.newByteBuffer(ROWS * Math.abs(pitch));
+        for (int y = 0; y < ROWS; y++) {
+            int row = pitch < 0 ? ROWS - 1 - y : y;
+            for (int x = 0; x < WIDTH; x++) {
+                src.put(row * Math.abs(pitch) + x, (byte) coverage(x, y));
+            }
+        }
+        return src;
+    }
+
+    private static int coverage(int x, int y) {
+        return (x * 60 + y * 25) & 0xff;
+    }
+
+    private static int bytesPerPixel(Format format) {
+        switch (format) {
+            case RGBA8888: return 4;
+            case RGB888: return 3;
+            case RGB565: case RGBA4444: case LuminanceAlpha: return 2;
+            default: return 1;
+        }
+    }
+
+    private static ByteBuffer convert(ByteBuffer src, int pitch, int pixelMode, Format format) {
+        ByteBuffer pixels = BufferUtils.newByteBuffer(WIDTH * ROWS * bytesPerPixel(format));
+        FreeType.Bitmap.convert(src, WIDTH, ROWS, pitch, pixelMode, format, RGBA, 1, pixels);
+        assertEquals("pixels position", 0, pixels.position());
+        return pixels;
+    }
+
+    /**
+     * Decodes pixel {@code i} back to RGBA8888, with channels the format doesn't store set from the source color.
+     */
+    private static int decode(ByteBuffer pixels, Format format, int i) {
+        switch (format) {
+            case RGBA8888:
+                return pixels.order(ByteOrder.BIG_ENDIAN).getInt(i * 4);
+            case RGB888:
+                return (pixels.get(i * 3) & 0xff) << 24 | (pixels.get(i * 3 + 1) & 0xff) << 16 | (pixels.get(i * 3 + 2) & 0xff) << 8;
+            case RGB565: {
+                int c = pixels.order(ByteOrder.nativeOrder()).getShort(i * 2) & 0xffff;
+                return (c >>> 11) << 27 | ((c >>> 5) & 0x3f) << 18 | (c & 0x1f) << 11;
+            }
+            case RGBA4444: {
+                int c = pixels.order(ByteOrder.nativeOrder()).getShort(i * 2) & 0xffff;
+                return (c >>> 12) << 28 | ((c >>> 8) & 0xf) << 20 | ((c >>> 4) & 0xf) << 12 | (c & 0xf) << 4;
+            }
+            case LuminanceAlpha:
+                return pixels.get(i * 2 + 1) & 0xff;
+            default:
+                return pixels.get(i) & 0xff;
+        }
+    }
+
+    /** Bits of RGBA8888 each format keeps. */
+    private static int mask(Format format) {
+        switch (format) {
+            case RGBA8888: return 0xffffffff;
+            case RGB888: return 0xffffff00;
+            case RGB565: return 0xf8fcf800;
+            case RGBA4444: return 0xf0f0f0f0;
+            default: return 0xff;
+        }
+    }
+
+    private static void assertRoundTrip(ByteBuffer pixels, Format format, int[] expected) {
+        int mask = mask(format);
+        for (int i = 0; i < expected.length; i++) {
+            int actual = decode(pixels, format, i) & mask, wanted = expected[i] & mask;
+            // Coverage goes through a float gamma table and may come out one lower.
+            int alphaMask = mask & 0xff;
+            boolean close = (actual & ~alphaMask) == (wanted & ~alphaMask)
+                && Math.abs((actual & alphaMask) - (wanted & alphaMask)) <= (alphaMask == 0xf0 ? 0x10 : 1);
+            if (!close) {
+                assertEquals(format + " pixel " + i, Integer.toHexString(wanted), Integer.toHexString(actual));
+            }
+        }
+    }
+
+    @Test
+    public void grayRoundTripsForEveryFormat() {
+        int[] expected = new int[WIDTH * ROWS];
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                expected[y * WIDTH + x] = (RGBA & 0xffffff00) | coverage(x, y);
+            }
+        }
+        for (Format format : Format.values()) {
+            assertRoundTrip(convert(grayBitmap(WIDTH), WIDTH, FreeType.FT_PIXEL_MODE_GRAY, format), format, expected);
+            assertRoundTrip(convert(grayBitmap(-WIDTH), -WIDTH, FreeType.FT_PIXEL_MODE_GRAY, format), format, expected);
+            // Padded rows skip the fast copy path.
+            assertRoundTrip(convert(grayBitmap(WIDTH + 3), WIDTH + 3, FreeType.FT_PIXEL_MODE_GRAY, format), format, expected);
+        }
+    }
+
+    @Test
+    public void monoRoundTripsForEveryFormat() {
+        ByteBuffer src = BufferUtils.newByteBuffer(ROWS);
+        src.put(0, (byte) 0b10100000).put(1, (byte) 0b01011000).put(2, (byte) 0b11111000);
+        int[] expected = new int[WIDTH * ROWS];
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                expected[y * WIDTH + x] = (src.get(y) & (0x80 >> x)) != 0 ? RGBA : 0;
+            }
+        }
+        for (Format format : Format.values()) {
+            assertRoundTrip(convert(src, 1, FreeType.FT_PIXEL_MODE_MONO, format), format, expected);
+        }
+    }
+}
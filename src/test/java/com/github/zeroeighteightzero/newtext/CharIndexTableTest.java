@@ -0,0 +1,50 @@
+package com.github.zeroeighteightzero.newtext;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CharIndexTableTest {
+    private final CharIndexTable table = new CharIndexTable(
+        new int[] {'A', 'B', 0xFF, 0x100, 0x4E00, 0x10FFFF, 0x110000, -5, 0},
+        new int[] {3, 4, 7, 8, 900, 65535, 1, 1, 1}, 6);
+
+    @Test
+    public void looksUpAcrossPages() {
+        assertEquals(3, table.get('A'));
+        assertEquals(4, table.get('B'));
+        // Last slot of one page and first slot of the next.
+        assertEquals(7, table.get(0xFF));
+        assertEquals(8, table.get(0x100));
+        assertEquals(900, table.get(0x4E00));
+        assertEquals(65535, table.get(0x10FFFF));
+        assertEquals(6, table.size());
+    }
+
+    @Test
+    public void missingCharactersMapToZero() {
+        assertEquals(0, table.get('C'));
+        assertEquals(0, table.get(0x101));
+        assertEquals(0, table.get(0x4E01));
+        assertEquals(0, table.get(0x10FFFE));
+        assertEquals(0, table.get(0x110000));
+        assertEquals(0, table.get(-1));
+        assertFalse(table.contains('C'));
+        assertTrue(table.contains('A'));
+    }
+
+    @Test
+    public void ignoresEntriesPastCountAndOutOfRange() {
+        CharIndexTable table = new CharIndexTable(new int[] {-5, 0x110000, 'a', 'b'}, new int[] {1, 2, 3, 4}, 3);
+        assertEquals(1, table.size());
+        assertEquals(3, table.get('a'));
+        assertEquals(0, table.get('b'));
+    }
+
+    @Test
+    public void bulkLookupWritesAtOffset() {
+        int[] glyphs = {-1, -1, -1, -1};
+        table.get(new int[] {'x', 'A', 'C', 0x100}, 1, 3, glyphs, 1);
+        assertArrayEquals(new int[] {-1, 3, 0, 8}, glyphs);
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.zeroeighteightzero.newtext;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CoverageTest {
+    private static Coverage sample() {
+        long[] bits = new long[0x110000 / 64];
+        for (int c = 'a'; c <= 'z'; c++) bits[c >> 6] |= 1L << c;
+        // One full page and a code point in the last plane.
+        for (int w = 0x4E00 / 64; w < 0x4F00 / 64; w++) bits[w] = -1L;
+        bits[0x10FFFF >> 6] |= 1L << 0x10FFFF;
+        return new Coverage(bits);
+    }
+
+    @Test
+    public void containsAndSize() {
+        Coverage coverage = sample();
+        assertEquals(26 + 256 + 1, coverage.size());
+        assertTrue(coverage.contains('a'));
+        assertTrue(coverage.contains(0x4E00));
+        assertTrue(coverage.contains(0x4EFF));
+        assertTrue(coverage.contains(0x10FFFF));
+        assertFalse(coverage.contains('A'));
+        assertFalse(coverage.contains(0x4F00));
+        assertFalse(coverage.contains(-1));
+        assertFalse(coverage.contains(0x110000));
+        assertTrue(coverage.containsAll("abc一", 0, 4));
+        assertFalse(coverage.containsAll("abC", 0, 3));
+        assertTrue(coverage.containsAll("abC", 0, 2));
+    }
+
+    @Test
+    public void bytesRoundTrip() {
+        Coverage coverage = sample();
+        byte[] bytes = coverage.toBytes();
+        Coverage read = Coverage.fromBytes(bytes);
+        assertEquals(coverage.size(), read.size());
+        for (int c = 0; c < 0x110000; c++) {
+            if (coverage.contains(c) != read.contains(c)) fail("code point " + Integer.toHexString(c));
+        }
+        assertArrayEquals(bytes, read.toBytes());
+    }
+
+    @Test
+    public void emptyRoundTrip() {
+        Coverage read = Coverage.fromBytes(new Coverage(new long[0x110000 / 64]).toBytes());
+        assertEquals(0, read.size());
+        assertFalse(read.contains('a'));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsForeignBytes() {
+        Coverage.fromBytes(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedBytes() {
+        byte[] bytes = sample().toBytes();
+        Coverage.fromBytes(Arrays.copyOf(bytes, bytes.length - 8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortBitArray() {
+        new Coverage(new long[16]);
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.zeroeighteightzero.newtext;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FallbackChainTest {
+    private static Coverage coverage(int... codepoints) {
+        long[] bits = new long[0x110000 / 64];
+        for (int c : codepoints) bits[c >> 6] |= 1L << c;
+        return new Coverage(bits);
+    }
+
+    private final FallbackChain chain = new FallbackChain(coverage('a', 'b', ' ', '.'), coverage('a', 0x4E00, ' ', 0x0301));
+
+    @Test
+    public void picksFirstCoveringFont() {
+        assertEquals(0, chain.select('a', -1));
+        assertEquals(1, chain.select(0x4E00, 0));
+        assertEquals(0, chain.select('a', 1));
+    }
+
+    @Test
+    public void keepsPreviousFontForMarksAndCoveredPunctuation() {
+        assertEquals(1, chain.select(' ', 1));
+        assertEquals(0, chain.select(' ', 0));
+        // A combining mark stays with its base even if another font has it.
+        assertEquals(0, chain.select(0x0301, 0));
+        assertEquals(1, chain.select(0x0301, -1));
+    }
+
+    @Test
+    public void uncoveredCodepointsFallBackToPreviousFont() {
+        assertEquals(1, chain.select('z', 1));
+        assertEquals(-1, chain.select('z', -1));
+        assertEquals(-1, new FallbackChain().select('a', -1));
+    }
+}
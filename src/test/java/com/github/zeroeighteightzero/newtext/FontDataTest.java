@@ -0,0 +1,50 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class FontDataTest {
+    @BeforeClass
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    private static FreeType.Face face(FreeType.Library library, long address) {
+        FreeType.Face face = new FreeType.Face(address, library, BufferUtils.newUnsafeByteBuffer(64), true);
+        library.faces.put(address, face);
+        return face;
+    }
+
+    @Test
+    public void libraryKeepsRetainedDataUntilReleased() {
+        long before = BufferUtils.getAllocatedBytesUnsafe();
+        FreeType.Library library = new FreeType.Library(0);
+        FreeType.Face shared = face(library, 1);
+        face(library, 2);
+        // Retained the way Harfbuzz.createBlob(Face) does it.
+        ByteBuffer data = shared.retainData();
+        // What Library.dispose does once FT_Done_FreeType has freed the faces.
+        library.freeFaces();
+        assertEquals(before + 64, BufferUtils.getAllocatedBytesUnsafe());
+        data.put(0, (byte) 1);
+        shared.releaseData();
+        assertEquals(before, BufferUtils.getAllocatedBytesUnsafe());
+        // The face is already gone with its library.
+        shared.dispose();
+    }
+
+    @Test
+    public void unretainedDataIsFreedWithTheLibrary() {
+        long before = BufferUtils.getAllocatedBytesUnsafe();
+        FreeType.Library library = new FreeType.Library(0);
+        face(library, 1);
+        library.freeFaces();
+        assertEquals(before, BufferUtils.getAllocatedBytesUnsafe());
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlyphAtlasTest {
+    @BeforeClass
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    @Test
+    public void skylinePacksWithoutOverlap() {
+        int width = 64, height = 64;
+        GlyphAtlas.Skyline skyline = new GlyphAtlas.Skyline(width, height);
+        boolean[] used = new boolean[width * height];
+        int[][] sizes = {{10, 12}, {30, 5}, {7, 7}, {20, 20}, {64, 3}, {5, 30}, {16, 9}};
+        int placed = 0;
+        for (int round = 0; round < 20; round++) {
+            int[] size = sizes[round % sizes.length];
+            long position = skyline.insert(size[0], size[1]);
+            if (position < 0) continue;
+            int x = (int) (position >>> 32), y = (int) position;
+            assertTrue(x >= 0 && y >= 0 && x + size[0] <= width && y + size[1] <= height);
+            for (int yy = y; yy < y + size[1]; yy++) {
+                for (int xx = x; xx < x + size[0]; xx++) {
+                    assertFalse("overlap at " + xx + ", " + yy, used[yy * width + xx]);
+                    used[yy * width + xx] = true;
+                }
+            }
+            placed++;
+        }
+        assertTrue(placed > 5);
+        assertEquals(-1, skyline.insert(width + 1, 1));
+    }
+
+    @Test
+    public void skylinePrefersLowestPosition() {
+        GlyphAtlas.Skyline skyline = new GlyphAtlas.Skyline(100, 100);
+        assertEquals(0L, skyline.insert(40, 30));
+        assertEquals(40L << 32, skyline.insert(40, 10));
+        // Lowest spot is right of the second rectangle, then on top of it.
+        assertEquals(80L << 32, skyline.insert(20, 50));
+        assertEquals((40L << 32) | 10, skyline.insert(40, 5));
+    }
+
+    @Test
+    public void keysKeepLargePixelSizesApart() {
+        assertNotEquals(GlyphAtlas.key(1, 0, 5), GlyphAtlas.key(1, 256, 5));
+        assertNotEquals(GlyphAtlas.key(1, 44, 5), GlyphAtlas.key(1, 300, 5));
+        assertNotEquals(GlyphAtlas.key(1, 12, 5), GlyphAtlas.key(2, 12, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keyRejectsOutOfRangeSize() {
+        GlyphAtlas.key(1, 0x10000, 5);
+    }
+
+    @Test
+    public void evictionNotifiesAndInvalidatesGlyphs() {
+        GlyphAtlas atlas = new GlyphAtlas(32, 32, Format.Alpha, 1, 0);
+        final Array<GlyphAtlas.Glyph> evicted = new Array<GlyphAtlas.Glyph>();
+        atlas.setEvictionListener(new GlyphAtlas.EvictionListener() {
+            @Override
+            public void evicted(GlyphAtlas.Page page, Array<GlyphAtlas.Glyph> glyphs) {
+                evicted.addAll(glyphs);
+            }
+        });
+        try {
+            GlyphAtlas.Glyph first = atlas.allocate(1, 32, 20, 0, 0, 0);
+            assertTrue(first.isValid());
+            GlyphAtlas.Glyph second = atlas.allocate(2, 32, 20, 0, 0, 0);
+            assertFalse(first.isValid());
+            assertTrue(second.isValid());
+            assertEquals(1, evicted.size);
+            assertSame(first, evicted.first());
+            assertNull(atlas.get(1));
+            assertSame(second, atlas.get(2));
+        } finally {
+            atlas.dispose();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.zeroeighteightzero.newtext;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ItemizerTest {
+    private static Itemizer.Runs runs(int length, int... items) {
+        return new Itemizer.Runs(items, items.length / Itemizer.RUN_STRIDE, length);
+    }
+
+    @Test
+    public void visualOrderReversesRightToLeftRuns() {
+        // LTR, RTL, RTL, LTR at paragraph level 0.
+        Itemizer.Runs runs = runs(8,
+            0, 2, Harfbuzz.HB_SCRIPT_LATIN, 0, 0,
+            2, 4, Harfbuzz.HB_SCRIPT_ARABIC, 1, 0,
+            4, 6, Harfbuzz.HB_SCRIPT_ARABIC, 1, 1,
+            6, 8, Harfbuzz.HB_SCRIPT_LATIN, 0, 0);
+        assertArrayEquals(new int[] {0, 2, 1, 3}, runs.getVisualOrder());
+        assertEquals(Harfbuzz.HB_DIRECTION_RTL, runs.getDirection(1));
+        assertEquals(Harfbuzz.HB_DIRECTION_LTR, runs.getDirection(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shapeRunsRejectsFontOutsideArray() {
+        Itemizer.Runs runs = runs(3, 0, 3, Harfbuzz.HB_SCRIPT_LATIN, 0, 1);
+        Harfbuzz.shapeRuns(null, new Harfbuzz.Font[1], new char[3], 3, runs.items, Itemizer.RUN_STRIDE, runs.count, 0, null,
+            new int[64], new int[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shapeRunsRejectsEmptyFontArray() {
+        Itemizer.Runs runs = runs(3, 0, 3, Harfbuzz.HB_SCRIPT_LATIN, 0, 0);
+        Harfbuzz.shapeRuns(null, new Harfbuzz.Font[0], new char[3], 3, runs.items, Itemizer.RUN_STRIDE, runs.count, 0, null,
+            new int[64], new int[1]);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shapeRunsRejectsRunPastText() {
+        Itemizer.Runs runs = runs(3, 0, 4, Harfbuzz.HB_SCRIPT_LATIN, 0, 0);
+        Harfbuzz.shapeRuns(null, new Harfbuzz.Font[1], new char[3], 3, runs.items, Itemizer.RUN_STRIDE, runs.count, 0, null,
+            new int[64], new int[1]);
+    }
+}
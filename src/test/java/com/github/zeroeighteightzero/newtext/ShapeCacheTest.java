@@ -0,0 +1,78 @@
+package com.github.zeroeighteightzero.newtext;
+
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+
+import static org.junit.Assert.*;
+
+public class ShapeCacheTest {
+    /** Shapes one glyph per character without touching native code. */
+    private static class FakeShapeCache extends ShapeCache {
+        int shaped;
+
+        FakeShapeCache(int maxEntries) {
+            super(maxEntries);
+        }
+
+        @Override
+        long scaleOf(Harfbuzz.Font font) {
+            return 12L << 32 | 12;
+        }
+
+        @Override
+        ShapedRun shapeUncached(Harfbuzz.Font font, String text, int direction, int script, long language, Harfbuzz.Features features) {
+            shaped++;
+            return new ShapedRun(new int[text.length() * Harfbuzz.GLYPH_STRIDE], text.length(), direction, script);
+        }
+    }
+
+    private static Harfbuzz.Font font() throws Exception {
+        Constructor<Harfbuzz.Font> constructor = Harfbuzz.Font.class.getDeclaredConstructor(long.class, Harfbuzz.Blob.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(0L, null);
+    }
+
+    @Test
+    public void hitsReturnTheCachedRun() throws Exception {
+        FakeShapeCache cache = new FakeShapeCache(4);
+        Harfbuzz.Font font = font();
+        ShapedRun run = cache.shape(font, "hello");
+        assertSame(run, cache.shape(font, new StringBuilder("hello")));
+        assertNotSame(run, cache.shape(font, "hello", Harfbuzz.HB_DIRECTION_RTL, Harfbuzz.HB_SCRIPT_INVALID, 0));
+        assertNotSame(run, cache.shape(font(), "hello"));
+        assertEquals(3, cache.shaped);
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        FakeShapeCache cache = new FakeShapeCache(2);
+        Harfbuzz.Font font = font();
+        ShapedRun a = cache.shape(font, "a");
+        cache.shape(font, "b");
+        // Touching "a" makes "b" the eldest.
+        assertSame(a, cache.shape(font, "a"));
+        cache.shape(font, "c");
+        assertEquals(2, cache.size());
+        assertSame(a, cache.shape(font, "a"));
+        assertEquals(3, cache.shaped);
+        cache.shape(font, "b");
+        assertEquals(4, cache.shaped);
+    }
+
+    @Test
+    public void invalidateDropsOnlyThatFont() throws Exception {
+        FakeShapeCache cache = new FakeShapeCache(8);
+        Harfbuzz.Font first = font(), second = font();
+        cache.shape(first, "x");
+        cache.shape(first, "y");
+        ShapedRun kept = cache.shape(second, "x");
+        cache.invalidate(first);
+        assertEquals(1, cache.size());
+        assertSame(kept, cache.shape(second, "x"));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.zeroeighteightzero.newtext;
+
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShapePlanTest {
+    private static Harfbuzz.Font font() throws Exception {
+        Constructor<Harfbuzz.Font> constructor = Harfbuzz.Font.class.getDeclaredConstructor(long.class, Harfbuzz.Blob.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(0L, null);
+    }
+
+    @Test
+    public void validDirections() {
+        assertTrue(Harfbuzz.HB_DIRECTION_IS_VALID(Harfbuzz.HB_DIRECTION_LTR));
+        assertTrue(Harfbuzz.HB_DIRECTION_IS_VALID(Harfbuzz.HB_DIRECTION_BTT));
+        assertFalse(Harfbuzz.HB_DIRECTION_IS_VALID(Harfbuzz.HB_DIRECTION_INVALID));
+        assertFalse(Harfbuzz.HB_DIRECTION_IS_VALID(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void planRejectsInvalidDirection() throws Exception {
+        font().createShapePlan(Harfbuzz.HB_DIRECTION_INVALID, Harfbuzz.HB_SCRIPT_LATIN, 0, null);
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.zeroeighteightzero.newtext;
+
+import com.badlogic.gdx.utils.Array;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static com.github.zeroeighteightzero.newtext.Harfbuzz.*;
+import static org.junit.Assert.*;
+
+public class TextLayoutTest {
+    /**
+     * Shapes one glyph of advance 10 per character without native code. 'c' is unsafe to break before and only 8 wide
+     * at the start of a line.
+     */
+    private static class FakeLayout extends TextLayout {
+        String text;
+
+        FakeLayout() {
+            setLocale(Locale.ENGLISH);
+        }
+
+        @Override
+        ShapedRun shape(int start, int end, int direction, int script, long language) {
+            int[] glyphs = new int[(end - start) * GLYPH_STRIDE];
+            for (int i = start; i < end; i++) {
+                int g = (i - start) * GLYPH_STRIDE;
+                char c = text.charAt(i);
+                glyphs[g + GLYPH_CODEPOINT] = c;
+                glyphs[g + GLYPH_CLUSTER] = i;
+                glyphs[g + GLYPH_X_ADVANCE] = c == 'c' && i == start && start > 0 ? 8 : 10;
+                if (c == 'c') glyphs[g + GLYPH_FLAGS] = HB_GLYPH_FLAG_UNSAFE_TO_BREAK;
+            }
+            return new ShapedRun(glyphs, end - start, direction == HB_DIRECTION_INVALID ? HB_DIRECTION_LTR : direction, HB_SCRIPT_LATIN);
+        }
+
+        Array<Line> layout(String text, int maxWidth, Breaker breaker) {
+            this.text = text;
+            return layout(null, text, maxWidth, HB_DIRECTION_INVALID, HB_SCRIPT_INVALID, 0, null, breaker);
+        }
+    }
+
+    private static void assertLines(Array<TextLayout.Line> lines, int... bounds) {
+        assertEquals("line count", bounds.length / 2, lines.size);
+        for (int i = 0; i < lines.size; i++) {
+            assertEquals("start of line " + i, bounds[i * 2], lines.get(i).start);
+            assertEquals("end of line " + i, bounds[i * 2 + 1], lines.get(i).end);
+        }
+    }
+
+    @Test
+    public void greedyFillsLinesAndTrimsTrailingSpace() {
+        Array<TextLayout.Line> lines = new FakeLayout().layout("aaa bbb ddd", 70, TextLayout.Breaker.GREEDY);
+        assertLines(lines, 0, 8, 8, 11);
+        assertEquals(70, lines.get(0).width);
+        assertEquals(30, lines.get(1).width);
+        assertEquals(8, lines.get(0).run.glyphCount);
+        assertFalse(lines.get(0).reshaped);
+    }
+
+    @Test
+    public void lineBreaksAreMandatory() {
+        assertLines(new FakeLayout().layout("aa\nbb", 1000, TextLayout.Breaker.GREEDY), 0, 3, 3, 5);
+        assertLines(new FakeLayout().layout("aa\nbb", 1000, TextLayout.Breaker.OPTIMAL), 0, 3, 3, 5);
+    }
+
+    @Test
+    public void overlongWordsGetTheirOwnLine() {
+        Array<TextLayout.Line> lines = new FakeLayout().layout("aaaaaaaa bb", 30, TextLayout.Breaker.GREEDY);
+        assertLines(lines, 0, 9, 9, 11);
+        assertEquals(80, lines.get(0).width);
+    }
+
+    @Test
+    public void optimalEvensOutLines() {
+        String text = "aaa bb dd eeeee";
+        assertLines(new FakeLayout().layout(text, 60, TextLayout.Breaker.GREEDY), 0, 7, 7, 10, 10, 15);
+        assertLines(new FakeLayout().layout(text, 60, TextLayout.Breaker.OPTIMAL), 0, 4, 4, 10, 10, 15);
+    }
+
+    @Test
+    public void unsafeEdgesAreReshaped() {
+        FakeLayout layout = new FakeLayout();
+        Array<TextLayout.Line> lines = layout.layout("ab cd", 30, TextLayout.Breaker.GREEDY);
+        assertLines(lines, 0, 3, 3, 5);
+        // The break before 'c' is an edge of both lines.
+        assertTrue(lines.get(0).reshaped);
+        assertTrue(lines.get(1).reshaped);
+        assertEquals(20, lines.get(0).width);
+        assertEquals(18, lines.get(1).width);
+        assertEquals(2, layout.getReshapeCount());
+    }
+
+    @Test
+    public void emptyTextIsOneEmptyLine() {
+        Array<TextLayout.Line> lines = new FakeLayout().layout("", 100, TextLayout.Breaker.GREEDY);
+        assertLines(lines, 0, 0);
+        assertEquals(0, lines.get(0).width);
+    }
+}
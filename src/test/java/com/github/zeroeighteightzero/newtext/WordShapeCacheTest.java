@@ -0,0 +1,25 @@
+package com.github.zeroeighteightzero.newtext;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WordShapeCacheTest {
+    @Test
+    public void firstStrongSkipsNeutrals() {
+        assertEquals('a', WordShapeCache.firstStrong("  (1) a\u05D0"));
+        assertEquals('\u05D0', WordShapeCache.firstStrong("12 \u05D0a"));
+        assertEquals('\u0627', WordShapeCache.firstStrong("- \u0627"));
+    }
+
+    @Test
+    public void firstStrongReadsSurrogatePairs() {
+        assertEquals(0x10400, WordShapeCache.firstStrong("1 \uD801\uDC00"));
+    }
+
+    @Test
+    public void firstStrongWithoutStrongCharacters() {
+        assertEquals(-1, WordShapeCache.firstStrong(" 12, ."));
+        assertEquals(-1, WordShapeCache.firstStrong(""));
+    }
+}